@@ -0,0 +1,62 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import info.unterrainer.commons.restclient.jsons.ListJson;
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.GzipSink;
+import okio.Okio;
+
+/**
+ * The payloads the benchmarks send and receive.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class BenchmarkPayloads {
+
+	@Data
+	@NoArgsConstructor
+	@AllArgsConstructor
+	public static class ItemJson {
+		private Long id;
+		private String name;
+		private String description;
+		private Double price;
+		private Boolean active;
+	}
+
+	static ListJson<ItemJson> items(final int count) {
+		List<ItemJson> entries = new ArrayList<>(count);
+		for (long i = 0; i < count; i++)
+			entries.add(new ItemJson(i, "item-" + i, "The description of the item number " + i, i * 1.5D, i % 2 == 0));
+		return ListJson.<ItemJson>builder().entries(entries).count(count).build();
+	}
+
+	static byte[] itemsJson(final int count) {
+		try {
+			return new ObjectMapper().writeValueAsBytes(items(count));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static Buffer gzip(final byte[] bytes) {
+		try {
+			Buffer buffer = new Buffer();
+			try (BufferedSink sink = Okio.buffer(new GzipSink(buffer))) {
+				sink.write(bytes);
+			}
+			return buffer;
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Compressed requests and responses through the {@link GzipInterceptor}
+ * against a {@link MockWebServer} on localhost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GzipBenchmark {
+
+	@Param({ "10", "10000" })
+	public int entries;
+
+	private RestClient client;
+	private MockWebServer server;
+	private String body;
+	private Buffer gzipped;
+
+	@Setup
+	public void setup() throws IOException {
+		// Compress every body, so that the small payload doesn't go out uncompressed.
+		client = new RestClient(JsonMapper.create(), RestClientConfig.builder().minCompressSize(0L).build());
+		byte[] payload = BenchmarkPayloads.itemsJson(entries);
+		body = new String(payload, StandardCharsets.UTF_8);
+		gzipped = BenchmarkPayloads.gzip(payload);
+
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest request) {
+				if ("POST".equals(request.getMethod()))
+					return new MockResponse().setBody("ok");
+				return new MockResponse().setHeader("Content-Type", "application/json")
+						.setHeader("Content-Encoding", "gzip")
+						.setBody(gzipped.clone());
+			}
+		});
+		server.start();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Benchmark
+	public String gzippedResponse() {
+		return client.<String>get(String.class).addUrl(server.url("/items").toString()).execute();
+	}
+
+	@Benchmark
+	public String gzippedRequest() {
+		return client.<String>post(String.class).addUrl(server.url("/items").toString()).gzip().body(body).execute();
+	}
+
+	@Benchmark
+	public String plainRequest() {
+		return client.<String>post(String.class).addUrl(server.url("/items").toString()).body(body).execute();
+	}
+}
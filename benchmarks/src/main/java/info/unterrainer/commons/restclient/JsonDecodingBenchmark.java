@@ -0,0 +1,105 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import info.unterrainer.commons.restclient.BenchmarkPayloads.ItemJson;
+import info.unterrainer.commons.restclient.jsons.ListJson;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.MediaType;
+import okhttp3.ResponseBody;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okio.Buffer;
+
+/**
+ * Decoding small and large {@link ListJson}-payloads, in memory (just the
+ * readers of the builders) and end-to-end from a {@link MockWebServer} on
+ * localhost.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonDecodingBenchmark {
+
+	private static final MediaType JSON = MediaType.get("application/json");
+
+	@Param({ "10", "10000" })
+	public int entries;
+	/**
+	 * Streams the bodies into an ObjectMapper instead of reading them with the
+	 * JsonMapper.
+	 */
+	@Param({ "false", "true" })
+	public boolean streaming;
+
+	private RestClient client;
+	private MockWebServer server;
+	private byte[] payload;
+	private String plain;
+
+	@Setup
+	public void setup() throws IOException {
+		client = new RestClient(JsonMapper.create(), streaming
+				? RestClientConfig.builder().objectMapper(new ObjectMapper()).build()
+				: RestClientConfig.DEFAULT);
+		payload = BenchmarkPayloads.itemsJson(entries);
+		plain = String.valueOf(entries);
+
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest request) {
+				return new MockResponse().setHeader("Content-Type", "application/json")
+						.setBody(new Buffer().write(payload));
+			}
+		});
+		server.start();
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Benchmark
+	public ListJson<ItemJson> decodeListJson() throws IOException {
+		GetBuilder<ListJson<ItemJson>> builder = client.get(ItemJson.class);
+		builder.isListJson();
+		return builder.readFrom(builder.javaType, ResponseBody.create(payload, JSON));
+	}
+
+	@Benchmark
+	public Object castToPlain() {
+		GetBuilder<Integer> builder = client.get(Integer.class);
+		return builder.castTo(null, plain);
+	}
+
+	@Benchmark
+	public ListJson<ItemJson> getListJson() {
+		return client.<ListJson<ItemJson>>get(ItemJson.class)
+				.addUrl(server.url("/items").toString())
+				.isListJson()
+				.execute();
+	}
+}
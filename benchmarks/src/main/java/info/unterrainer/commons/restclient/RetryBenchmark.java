@@ -0,0 +1,68 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.unterrainer.commons.restclient.RetryPolicy.Jitter;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+
+/**
+ * The overhead of the retry-loop itself (without any network and without
+ * waiting in between attempts).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RetryBenchmark {
+
+	private static final IOException FAILURE = new IOException("failed");
+
+	private RestClient client;
+	private RetryPolicy policy;
+
+	@Setup
+	public void setup() {
+		client = new RestClient(JsonMapper.create());
+		policy = RetryPolicy.builder().maxAttempts(3).baseDelayMillis(0L).capMillis(0L).jitter(Jitter.NONE).build();
+	}
+
+	@Benchmark
+	public String once() {
+		return client.retry(RetryPolicy.ONCE, c -> "ok");
+	}
+
+	@Benchmark
+	public String succeedOnThirdAttempt() {
+		int[] attempts = new int[1];
+		return client.retry(policy, c -> {
+			if (++attempts[0] < 3)
+				throw FAILURE;
+			return "ok";
+		});
+	}
+
+	@Benchmark
+	public String succeedOnThirdAttemptAsync() {
+		int[] attempts = new int[1];
+		return client.retryAsync(policy, c -> {
+			if (++attempts[0] < 3)
+				return CompletableFuture.failedFuture(FAILURE);
+			return CompletableFuture.completedFuture("ok");
+		}).join();
+	}
+}
@@ -0,0 +1,77 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.unterrainer.commons.restclient.jsons.TokenResponseJson;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+/**
+ * Many threads needing an access-token at the same time, with a token-endpoint
+ * on a {@link MockWebServer}.
+ * <p>
+ * With {@code expiresIn} 0 every token is expired right away, so the threads
+ * keep on running into the refresh (and have to share it). With a long
+ * lifetime this measures the fast path of a cached token.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(8)
+@Fork(1)
+public class TokenRefreshBenchmark {
+
+	@Param({ "0", "300" })
+	public long expiresIn;
+
+	private RestClient client;
+	private MockWebServer server;
+	private KeycloakContext context;
+
+	@Setup
+	public void setup() throws IOException {
+		client = new RestClient(JsonMapper.create());
+		server = new MockWebServer();
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest request) {
+				return new MockResponse().setHeader("Content-Type", "application/json")
+						.setBody("{\"access_token\":\"token\",\"expires_in\":" + expiresIn + "}");
+			}
+		});
+		server.start();
+		String tokenUrl = server.url("/token").toString();
+		context = new KeycloakContext(
+				c -> c.<TokenResponseJson>get(TokenResponseJson.class).addUrl(tokenUrl).execute());
+	}
+
+	@TearDown
+	public void tearDown() throws IOException {
+		server.shutdown();
+	}
+
+	@Benchmark
+	public String accessToken() {
+		return context.accessToken(client);
+	}
+}
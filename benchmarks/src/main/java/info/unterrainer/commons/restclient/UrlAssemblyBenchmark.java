@@ -0,0 +1,77 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+
+/**
+ * Building the URL and headers of a call (what {@link BaseBuilder#execute()}
+ * does before the call goes out), with URL-parts and with a
+ * {@link RequestTemplate}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class UrlAssemblyBenchmark {
+
+	private RestClient client;
+	private RequestTemplate template;
+
+	@Setup
+	public void setup() {
+		client = new RestClient(JsonMapper.create());
+		template = RequestTemplate.of("https://localhost:8080/api/users/{id}/items")
+				.withHeader("Accept", "application/json");
+	}
+
+	@Benchmark
+	public HttpUrl urlParts() {
+		return client.<String>get(String.class)
+				.addUrl("https://localhost:8080/")
+				.addUrl("/api/")
+				.addUrl("users")
+				.addUrl("42")
+				.addUrl("items/")
+				.addParam("offset", "0")
+				.addParam("size", "100")
+				.buildHttpUrl();
+	}
+
+	@Benchmark
+	public HttpUrl template() {
+		return client.<String>get(String.class)
+				.template(template, 42)
+				.addParam("offset", "0")
+				.addParam("size", "100")
+				.buildHttpUrl();
+	}
+
+	@Benchmark
+	public HttpUrl templateBindOnly() {
+		return template.bind(42);
+	}
+
+	@Benchmark
+	public Headers headers() {
+		return client.<String>get(String.class)
+				.addHeader("Accept", "application/json")
+				.addHeader("X-Request-Id", "4711")
+				.buildHeaders();
+	}
+}
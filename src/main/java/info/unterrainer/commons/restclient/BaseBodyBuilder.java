@@ -0,0 +1,101 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+import okhttp3.RequestBody;
+import okio.Source;
+
+/**
+ * The base of the builders of calls with a request-body (POST and PUT).
+ *
+ * @param <T> the return type of the call
+ * @param <R> the type of the concrete builder the body-methods return
+ * @param <B> the type of the base-builder the other methods return
+ */
+public abstract class BaseBodyBuilder<T, R, B extends BaseBodyBuilder<T, R, B>> extends BaseBuilder<T, B> {
+
+	protected String mediaType = "application/json";
+	protected Function<String, RequestBody> content = mt -> RequestBodies.of(mt, null, null);
+	/**
+	 * True if the body can only be sent once, which turns off retries.
+	 */
+	protected boolean oneShot;
+
+	BaseBodyBuilder(final RestClient client, final Class<?> type) {
+		super(client, type);
+	}
+
+	@SuppressWarnings("unchecked")
+	public R mediaType(final String mediaType) {
+		this.mediaType = mediaType;
+		return (R) this;
+	}
+
+	public R body(final String body) {
+		return content(mt -> RequestBodies.of(mt, body, null), false);
+	}
+
+	public R body(final byte[] body) {
+		return content(mt -> RequestBodies.of(mt, null, body), false);
+	}
+
+	/**
+	 * Streams the file at the given path without loading it into memory.
+	 *
+	 * @param body the file to send
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	public R body(final Path body) {
+		return content(mt -> RequestBodies.of(RequestBodies.parse(mt), body), false);
+	}
+
+	/**
+	 * Streams the given input-stream without loading it into memory.
+	 * <p>
+	 * The stream can only be read once, so the call is made only once, regardless
+	 * of the retry-policy of this builder.
+	 *
+	 * @param body the stream to send (closed after sending)
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	public R body(final InputStream body) {
+		return content(mt -> RequestBodies.of(RequestBodies.parse(mt), body), true);
+	}
+
+	/**
+	 * Streams a fresh source from the given supplier every time the body is sent.
+	 *
+	 * @param body the supplier of the source to send (closed after sending)
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	public R body(final Supplier<Source> body) {
+		return content(mt -> RequestBodies.of(RequestBodies.parse(mt), body), false);
+	}
+
+	/**
+	 * Serializes the given object to JSON. With an
+	 * {@link RestClientConfig#getObjectMapper()} this happens directly into the
+	 * connection while sending it, without building a string first.
+	 *
+	 * @param body the object to serialize
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	public R jsonBody(final Object body) {
+		return content(mt -> client.jsonBody(RequestBodies.parse(mt), body), false);
+	}
+
+	@SuppressWarnings("unchecked")
+	private R content(final Function<String, RequestBody> content, final boolean oneShot) {
+		this.content = content;
+		this.oneShot = oneShot;
+		return (R) this;
+	}
+
+	@Override
+	protected RetryPolicy retryPolicy() {
+		return oneShot ? RetryPolicy.ONCE : retry;
+	}
+}
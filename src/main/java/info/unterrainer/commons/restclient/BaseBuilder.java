@@ -1,34 +1,55 @@
 package info.unterrainer.commons.restclient;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.net.URLEncoder;
+import java.nio.file.Files;
+import java.nio.file.OpenOption;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.stream.Collectors;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.JavaType;
-import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.databind.ObjectReader;
 
+import info.unterrainer.commons.restclient.RestClient.HttpAsyncCall;
 import info.unterrainer.commons.restclient.RestClient.HttpGetCall;
+import info.unterrainer.commons.restclient.RestClient.ResponseReader;
+import info.unterrainer.commons.restclient.RestClient.StreamingResponseReader;
+import info.unterrainer.commons.restclient.RestClient.TypedResponseReader;
+import info.unterrainer.commons.restclient.exceptions.HttpStatusException;
 import info.unterrainer.commons.restclient.exceptions.RestClientException;
 import info.unterrainer.commons.restclient.jsons.ListJson;
 import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
 import lombok.AccessLevel;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.ResponseBody;
+import okio.BufferedSink;
+import okio.BufferedSource;
+import okio.Okio;
 
 @Slf4j
 @RequiredArgsConstructor(access = AccessLevel.PACKAGE)
 public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 
-	protected enum Retry {
-		ONCE,
-		SHORT,
-		ENDURING
-	}
+	private static final Headers NO_HEADERS = Headers.of();
+	/**
+	 * The parsers of the types that are read as plain strings instead of JSON.
+	 */
+	private static final Map<Class<?>, Function<String, Object>> PLAIN_PARSERS = Map.of(String.class, s -> s,
+			Boolean.class, Boolean::parseBoolean, Byte.class, Byte::parseByte, Short.class, Short::parseShort,
+			Integer.class, Integer::parseInt, Long.class, Long::parseLong, Float.class, Float::parseFloat,
+			Double.class, Double::parseDouble, Void.class, s -> null);
 
 	protected final RestClient client;
 	protected final Class<?> type;
@@ -38,8 +59,15 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 	protected TypeReference<?> typeReference;
 	protected Map<String, String> headers = new HashMap<>();
 	protected Map<String, String> parameters = new HashMap<>();
-	protected Retry retry = Retry.ONCE;
+	protected RetryPolicy retry = RetryPolicy.ONCE;
 	protected boolean isGZipped;
+	/**
+	 * If set, the calls are tagged with this context and get their bearer-token
+	 * attached by the {@link BearerAuthInterceptor} of the client.
+	 */
+	protected KeycloakContext keycloakContext;
+	protected RequestTemplate template;
+	protected Object[] pathValues;
 
 	/**
 	 * Adds the header {@code "Content-Encoding": "gzip"} which triggers
@@ -53,6 +81,25 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 		return (R) this;
 	}
 
+	/**
+	 * Adds the header {@code "Content-Encoding": encoding} which triggers the
+	 * compression of the request-body with the given codec (like {@code deflate})
+	 * within our RestClient.
+	 * <p>
+	 * Bodies smaller than the threshold of the client are sent uncompressed.
+	 *
+	 * @param encoding the name of the content-coding
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 * @throws IllegalArgumentException if the client isn't able to compress with
+	 *                                  the given coding (like {@code br}, which
+	 *                                  is only decoded)
+	 */
+	@SuppressWarnings("unchecked")
+	public R compress(final String encoding) {
+		addHeader("Content-Encoding", client.compression.encoderFor(encoding).encoding());
+		return (R) this;
+	}
+
 	/**
 	 * Add a string to an URL.
 	 * <p>
@@ -73,6 +120,23 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 		return (R) this;
 	}
 
+	/**
+	 * Use a precompiled {@link RequestTemplate} for the URL and the headers.
+	 * <p>
+	 * URL-parts added with {@link #addUrl(String)} are appended to the path of the
+	 * template, parameters and headers are added to the ones of the template.
+	 *
+	 * @param template   the template to use
+	 * @param pathValues the values of the path-variables of the template
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	@SuppressWarnings("unchecked")
+	public R template(final RequestTemplate template, final Object... pathValues) {
+		this.template = template;
+		this.pathValues = pathValues;
+		return (R) this;
+	}
+
 	/**
 	 * Sets the return-type to be of {@link ListJson} with the generic type you
 	 * provided when starting this builder.
@@ -81,9 +145,7 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 	 */
 	@SuppressWarnings("unchecked")
 	public R isListJson() {
-		JsonMapper mapper = client.jsonMapper;
-		TypeFactory typeFactory = mapper.getTypeFactory();
-		javaType = typeFactory.constructParametricType(ListJson.class, type);
+		javaType = client.listJsonType(type);
 		return (R) this;
 	}
 
@@ -95,9 +157,7 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 	 */
 	@SuppressWarnings("unchecked")
 	public R isList() {
-		JsonMapper mapper = client.jsonMapper;
-		TypeFactory typeFactory = mapper.getTypeFactory();
-		javaType = typeFactory.constructParametricType(List.class, type);
+		javaType = client.listType(type);
 		return (R) this;
 	}
 
@@ -135,16 +195,14 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 	@SuppressWarnings("unchecked")
 	public R addParam(final String key, final String value) {
 		if (key != null && value != null) {
-			String k = cutLeadingTrailing("&", key);
-			k = cutLeadingTrailing("?", k);
+			String k = cutLeadingTrailing('&', '?', key);
 			try {
 				k = URLEncoder.encode(k, "UTF-8");
 			} catch (UnsupportedEncodingException e) {
 				log.error(String.format("The given key-value %s could not be URL-encoded.", k), e);
 			}
 
-			String v = cutLeadingTrailing("&", value);
-			v = cutLeadingTrailing("?", v);
+			String v = cutLeadingTrailing('&', '?', value);
 			try {
 				v = URLEncoder.encode(v, "UTF-8");
 			} catch (UnsupportedEncodingException e) {
@@ -165,7 +223,7 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 	 */
 	@SuppressWarnings("unchecked")
 	public R retryShort() {
-		retry = Retry.SHORT;
+		retry = RetryPolicy.SHORT;
 		return (R) this;
 	}
 
@@ -179,13 +237,54 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 	 */
 	@SuppressWarnings("unchecked")
 	public R retryEnduring() {
-		retry = Retry.ENDURING;
+		retry = RetryPolicy.ENDURING;
 		return (R) this;
 	}
 
-	protected abstract HttpGetCall<T> provideCall(String url, Class<T> type, Map<String, String> headers);
+	/**
+	 * Requests only a part of the resource by adding a {@code Range} header.
+	 * <p>
+	 * Like every header, it is sent with all the calls made with this builder.
+	 *
+	 * @param from the first byte to get (starting with 0)
+	 * @param to   the last byte to get (inclusive) or a negative number to get
+	 *             everything from {@code from} on
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	@SuppressWarnings("unchecked")
+	public R range(final long from, final long to) {
+		addHeader("Range", "bytes=" + from + "-" + (to < 0L ? "" : String.valueOf(to)));
+		return (R) this;
+	}
 
-	protected abstract HttpGetCall<T> provideJavaTypeCall(String url, JavaType javaType, Map<String, String> headers);
+	/**
+	 * By specifying this, you tell the client to retry this call according to the
+	 * given {@link RetryPolicy}, if it fails.
+	 * <p>
+	 * The default is to just try it once and then give up and return an error.
+	 *
+	 * @param policy the policy deciding if, how often and how fast to retry
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	@SuppressWarnings("unchecked")
+	public R retry(final RetryPolicy policy) {
+		if (policy != null)
+			retry = policy;
+		return (R) this;
+	}
+
+	/**
+	 * Returns the retry-policy the calls are made with.
+	 *
+	 * @return the policy
+	 */
+	protected RetryPolicy retryPolicy() {
+		return retry;
+	}
+
+	protected abstract <V> HttpGetCall<V> provideCall(HttpUrl url, Headers headers, ResponseReader<V> reader);
+
+	protected abstract <V> HttpAsyncCall<V> provideAsyncCall(HttpUrl url, Headers headers, ResponseReader<V> reader);
 
 	/**
 	 * Execute the call.
@@ -194,64 +293,265 @@ public abstract class BaseBuilder<T, R extends BaseBuilder<T, R>> {
 	 * @return the return value of type you specified when you created this builder.
 	 */
 	public T execute() {
-		String url = String.join("/",
-				this.url.stream().map(e -> cutLeadingTrailing("/", e)).collect(Collectors.toList()));
-
-		String params = String.join("&",
-				parameters.entrySet().stream().map(e -> e.getKey() + "=" + e.getValue()).collect(Collectors.toList()));
-		if (!params.isBlank())
-			url += "?" + params;
-
-		switch (retry) {
-			case SHORT:
-				return client.retryShort(provide(url, type, javaType, headers));
-			case ENDURING:
-				return client.retryEnduring(provide(url, type, javaType, headers));
-			default:
-				return client.once(provide(url, type, javaType, headers));
+		return client.retry(retryPolicy(), provideCall(buildHttpUrl(), buildHeaders(), provideReader()));
+	}
+
+	/**
+	 * Execute the call asynchronously.
+	 * <p>
+	 * The call is enqueued to the dispatcher of the underlying OkHttp-client and
+	 * the calling thread returns immediately. Retries are scheduled instead of
+	 * waiting in a sleeping thread. Cancelling the returned future cancels the
+	 * call in flight.
+	 *
+	 * @return a future of the return value of the type you specified when you
+	 *         created this builder. It completes exceptionally with a
+	 *         {@link RestClientException} if an error occurred.
+	 */
+	public CompletableFuture<T> executeAsync() {
+		return client.retryAsync(retryPolicy(), provideAsyncCall(buildHttpUrl(), buildHeaders(), provideReader()));
+	}
+
+	/**
+	 * Execute the call on a new virtual thread (Java 21+).
+	 * <p>
+	 * This is the blocking {@link #execute()} (including the waits in between
+	 * retries), but a blocked virtual thread doesn't hold on to a platform
+	 * thread, so tens of thousands of these may run at the same time.<br>
+	 * On JVMs without virtual threads the call runs on a platform thread of the
+	 * executor returned by {@link RestClient#virtualThreadExecutor()} instead.
+	 *
+	 * @return a future of the return value of the type you specified when you
+	 *         created this builder
+	 */
+	public CompletableFuture<T> executeOnVirtualThread() {
+		return CompletableFuture.supplyAsync(this::execute, VirtualThreads.executor());
+	}
+
+	/**
+	 * Execute the call and return the body of the response as a stream, without
+	 * reading it into memory.
+	 * <p>
+	 * The caller has to close the stream, which releases the connection.
+	 *
+	 * @throws RestClientException if an error occurred.
+	 * @return the body of the response or null, if the call failed
+	 */
+	public InputStream executeToStream() {
+		return client.retry(retryPolicy(), provideCall(buildHttpUrl(), buildHeaders(),
+				(StreamingResponseReader<InputStream>) r -> r.body().byteStream()));
+	}
+
+	/**
+	 * Execute the call and return the body of the response as an okio-source,
+	 * without reading it into memory.
+	 * <p>
+	 * The caller has to close the source, which releases the connection.
+	 *
+	 * @throws RestClientException if an error occurred.
+	 * @return the body of the response or null, if the call failed
+	 */
+	public BufferedSource executeAsSource() {
+		return client.retry(retryPolicy(), provideCall(buildHttpUrl(), buildHeaders(),
+				(StreamingResponseReader<BufferedSource>) r -> r.body().source()));
+	}
+
+	/**
+	 * Execute the call and stream the body of the response to the given file.
+	 *
+	 * @param target the file to write to (replaced if it exists)
+	 * @throws RestClientException if an error occurred.
+	 * @return the file written or null, if the call failed
+	 */
+	public Path executeTo(final Path target) {
+		return executeTo(target, false);
+	}
+
+	/**
+	 * Execute the call and stream the body of the response to the given file.
+	 * <p>
+	 * When resuming, only the bytes missing in the existing file are requested
+	 * (using a {@code Range} header) and appended to it. If the server doesn't
+	 * support ranges and sends the whole resource, the file is replaced.<br>
+	 * Otherwise the file is always replaced, even by a partial response to a
+	 * {@link #range(long, long)}.
+	 *
+	 * @param target the file to write to
+	 * @param resume true to resume a partial download to the file
+	 * @throws RestClientException if an error occurred.
+	 * @return the file written or null, if the call failed
+	 */
+	public Path executeTo(final Path target, final boolean resume) {
+		HttpUrl httpUrl = buildHttpUrl();
+		Headers headers = buildHeaders();
+		ResponseReader<Path> reader = r -> {
+			// Only the resume-path asks for the missing bytes of the file.
+			OpenOption[] options = resume && r.code() == 206
+					? new OpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.APPEND }
+					: new OpenOption[] { StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+							StandardOpenOption.WRITE };
+			try (BufferedSink sink = Okio.buffer(Okio.sink(target, options))) {
+				sink.writeAll(r.body().source());
+			}
+			return target;
+		};
+		try {
+			if (!resume)
+				return client.retry(retryPolicy(), provideCall(httpUrl, headers, reader));
+			// Every attempt resumes from the current size, since a failed one may have
+			// appended a part already.
+			return client.retry(retryPolicy(), c -> provideCall(httpUrl, resumeFrom(target, headers), reader)
+					.execute(c));
+		} catch (HttpStatusException e) {
+			if (resume && e.getStatusCode() == 416)
+				// The file is complete already.
+				return target;
+			throw e;
+		}
+	}
+
+	private static Headers resumeFrom(final Path target, final Headers headers) throws IOException {
+		long size = Files.exists(target) ? Files.size(target) : 0L;
+		if (size == 0L)
+			return headers;
+		return headers.newBuilder().set("Range", "bytes=" + size + "-").build();
+	}
+
+	protected String buildUrl() {
+		StringBuilder sb = new StringBuilder(64);
+		for (int i = 0; i < url.size(); i++) {
+			if (i > 0)
+				sb.append('/');
+			appendTrimmed(sb, '/', '/', url.get(i));
+		}
+
+		char separator = '?';
+		for (Map.Entry<String, String> e : parameters.entrySet()) {
+			sb.append(separator).append(e.getKey()).append('=').append(e.getValue());
+			separator = '&';
 		}
+		return sb.toString();
+	}
+
+	/**
+	 * Builds the URL to call from the template (if any), the URL-parts and the
+	 * parameters.
+	 *
+	 * @return the URL
+	 */
+	protected HttpUrl buildHttpUrl() {
+		if (template == null)
+			return HttpUrl.get(buildUrl());
+		if (url.isEmpty() && parameters.isEmpty())
+			return template.bind(pathValues);
+
+		HttpUrl.Builder builder = template.newUrlBuilder(pathValues);
+		for (String part : url)
+			builder.addPathSegments(cutLeadingTrailing('/', '/', part));
+		for (Map.Entry<String, String> e : parameters.entrySet())
+			builder.addEncodedQueryParameter(e.getKey(), e.getValue());
+		return builder.build();
+	}
+
+	/**
+	 * Builds the headers of the call from the template (if any) and the headers
+	 * added to this builder (which take precedence).
+	 *
+	 * @return the headers
+	 */
+	protected Headers buildHeaders() {
+		Headers base = template == null ? NO_HEADERS : template.headers();
+		if (headers.isEmpty())
+			return base;
+		Headers.Builder builder = base.newBuilder();
+		for (Map.Entry<String, String> e : headers.entrySet())
+			builder.set(e.getKey(), e.getValue());
+		return builder.build();
 	}
 
 	@SuppressWarnings("unchecked")
-	private HttpGetCall<T> provide(final String url, final Class<?> type, final JavaType javaType,
-			final Map<String, String> headers) {
+	private ResponseReader<T> provideReader() {
 		if (javaType != null)
-			return provideJavaTypeCall(url, javaType, headers);
-		return provideCall(url, (Class<T>) type, headers);
+			return new TypedResponseReader<>(javaType.toCanonical(), response -> readFrom(javaType, response.body()));
+		return new TypedResponseReader<>(type.getName(), response -> (T) readFrom(response.body()));
+	}
+
+	/**
+	 * Cuts all leading and trailing occurrences of the given characters (in any
+	 * order) without creating intermediate strings.
+	 */
+	private static String cutLeadingTrailing(final char a, final char b, final String input) {
+		return appendTrimmed(new StringBuilder(input.length()), a, b, input).toString();
 	}
 
-	private String cutLeadingTrailing(final String s, final String input) {
-		String u = input;
-		while (u.startsWith(s))
-			u = u.substring(1);
-		while (u.endsWith(s))
-			u = u.substring(0, u.length() - 1);
-		return u;
+	private static StringBuilder appendTrimmed(final StringBuilder sb, final char a, final char b,
+			final String input) {
+		int start = 0;
+		int end = input.length();
+		while (start < end && (input.charAt(start) == a || input.charAt(start) == b))
+			start++;
+		while (end > start && (input.charAt(end - 1) == a || input.charAt(end - 1) == b))
+			end--;
+		return sb.append(input, start, end);
 	}
 
 	protected <V> Object castTo(final JsonMapper jsonMapper, final String s) {
 		if (s == null)
 			return null;
 
-		if (String.class.isAssignableFrom(type))
-			return s;
-		if (Boolean.class.isAssignableFrom(type))
-			return Boolean.parseBoolean(s);
-		if (Byte.class.isAssignableFrom(type))
-			return Byte.parseByte(s);
-		if (Short.class.isAssignableFrom(type))
-			return Short.parseShort(s);
-		if (Integer.class.isAssignableFrom(type))
-			return Integer.parseInt(s);
-		if (Long.class.isAssignableFrom(type))
-			return Long.parseLong(s);
-		if (Float.class.isAssignableFrom(type))
-			return Float.parseFloat(s);
-		if (Double.class.isAssignableFrom(type))
-			return Double.parseDouble(s);
-		if (Void.class.isAssignableFrom(type))
-			return null;
-
+		Function<String, Object> parser = PLAIN_PARSERS.get(type);
+		if (parser != null)
+			return parser.apply(s);
 		return client.jsonMapper.fromStringTo(type, s);
 	}
+
+	/**
+	 * Reads the response-body and converts it to the type of this builder.
+	 * <p>
+	 * Plain types (like {@link String} or {@link Integer}) are read as a string
+	 * and parsed. If the client has an {@link RestClientConfig#getObjectMapper()},
+	 * everything else is fed from the byte-stream of the body directly into the
+	 * JSON-parser, so that the payload is never held as a whole in memory before
+	 * deserialization. Otherwise it is read by the JsonMapper of the client.
+	 *
+	 * @param body the body of the response
+	 * @return the deserialized object
+	 * @throws IOException         if the body could not be read or deserialized
+	 * @throws RestClientException if the body of a JSON-response was empty
+	 */
+	protected Object readFrom(final ResponseBody body) throws IOException {
+		Function<String, Object> parser = PLAIN_PARSERS.get(type);
+		if (parser != null)
+			return parser.apply(body.string());
+		if (client.objectMapper == null)
+			return castTo(client.jsonMapper, body.string());
+		return read(client.readerFor(type), body);
+	}
+
+	/**
+	 * Streams the response-body directly into the JSON-parser (or reads it with
+	 * the JsonMapper of the client, see {@link #readFrom(ResponseBody)}).
+	 *
+	 * @param <V>      the type to deserialize to
+	 * @param javaType the type to deserialize to
+	 * @param body     the body of the response
+	 * @return the deserialized object
+	 * @throws IOException         if the body could not be read or deserialized
+	 * @throws RestClientException if the body was empty
+	 */
+	protected <V> V readFrom(final JavaType javaType, final ResponseBody body) throws IOException {
+		if (client.objectMapper == null)
+			return client.jsonMapper.fromStringTo(javaType, body.string());
+		return read(client.readerFor(javaType), body);
+	}
+
+	private <V> V read(final ObjectReader reader, final ResponseBody body) throws IOException {
+		BufferedSource source = body.source();
+		// A null would be taken for a failed call and retried.
+		if (source.exhausted())
+			throw new RestClientException("The body of the response was empty.");
+		try (InputStream in = source.inputStream()) {
+			return reader.readValue(in);
+		}
+	}
 }
@@ -1,10 +1,10 @@
 package info.unterrainer.commons.restclient;
 
-import java.util.Map;
-
-import com.fasterxml.jackson.databind.JavaType;
-
+import info.unterrainer.commons.restclient.RestClient.HttpAsyncCall;
 import info.unterrainer.commons.restclient.RestClient.HttpGetCall;
+import info.unterrainer.commons.restclient.RestClient.ResponseReader;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
 
 public class BaseDelBuilder<T, R> extends BaseBuilder<T, BaseDelBuilder<T, R>> {
 
@@ -12,21 +12,15 @@ public class BaseDelBuilder<T, R> extends BaseBuilder<T, BaseDelBuilder<T, R>> {
 		super(client, type);
 	}
 
-	@SuppressWarnings("unchecked")
 	@Override
-	protected HttpGetCall<T> provideCall(final String url, final Class<T> type, final Map<String, String> headers) {
-		return client -> {
-			String r = client.delPlain(url, StringParam.builder().parameters(headers).build());
-			return (T) castTo(client.jsonMapper, r);
-		};
+	protected <V> HttpGetCall<V> provideCall(final HttpUrl url, final Headers headers,
+			final ResponseReader<V> reader) {
+		return client -> client.delPlain(url, headers, keycloakContext, reader);
 	}
 
 	@Override
-	protected HttpGetCall<T> provideJavaTypeCall(final String url, final JavaType javaType,
-			final Map<String, String> headers) {
-		return client -> {
-			String r = client.delPlain(url, StringParam.builder().parameters(headers).build());
-			return client.jsonMapper.fromStringTo(javaType, r);
-		};
+	protected <V> HttpAsyncCall<V> provideAsyncCall(final HttpUrl url, final Headers headers,
+			final ResponseReader<V> reader) {
+		return client -> client.delAsync(url, headers, keycloakContext, reader);
 	}
 }
@@ -1,32 +1,217 @@
 package info.unterrainer.commons.restclient;
 
-import java.util.Map;
-
-import com.fasterxml.jackson.databind.JavaType;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
+import info.unterrainer.commons.restclient.RestClient.HttpAsyncCall;
 import info.unterrainer.commons.restclient.RestClient.HttpGetCall;
+import info.unterrainer.commons.restclient.RestClient.ResponseReader;
+import info.unterrainer.commons.restclient.exceptions.RestClientException;
+import info.unterrainer.commons.restclient.jsons.ListJson;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
 
 public class BaseGetBuilder<T, R> extends BaseBuilder<T, BaseGetBuilder<T, R>> {
 
+	protected String offsetParam = "offset";
+	protected String sizeParam = "size";
+	protected long hedgeDelayMillis = -1L;
+
 	BaseGetBuilder(final RestClient client, final Class<?> type) {
 		super(client, type);
 	}
 
-	@SuppressWarnings("unchecked")
+	/**
+	 * Hedges the call: If it didn't succeed after the given delay, the same call
+	 * is made a second time and the first successful response is used, while the
+	 * other call is cancelled. This cuts the tail-latency caused by slow replicas.
+	 * <p>
+	 * The number of hedges is limited by the hedging-budget of the client. Don't
+	 * combine this with request-coalescing, which would make the hedge join the
+	 * call it should race.
+	 *
+	 * @param delayMillis the time to wait before sending the hedge (like the 95th
+	 *                    percentile of the latency of the endpoint)
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	public BaseGetBuilder<T, R> hedge(final long delayMillis) {
+		if (delayMillis < 0L)
+			throw new IllegalArgumentException("The delay must not be negative.");
+		hedgeDelayMillis = delayMillis;
+		return this;
+	}
+
+	@Override
+	public T execute() {
+		if (hedgeDelayMillis < 0L)
+			return super.execute();
+		try {
+			return executeAsync().join();
+		} catch (CompletionException e) {
+			Throwable cause = RestClient.unwrap(e);
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new RestClientException("The hedged call didn't work out.", cause);
+		}
+	}
+
+	@Override
+	public CompletableFuture<T> executeAsync() {
+		if (hedgeDelayMillis < 0L)
+			return super.executeAsync();
+		return client.hedge(hedgeDelayMillis, () -> super.executeAsync());
+	}
+
 	@Override
-	protected HttpGetCall<T> provideCall(final String url, final Class<T> type, final Map<String, String> headers) {
-		return client -> {
-			String r = client.getPlain(url, StringParam.builder().parameters(headers).build());
-			return (T) castTo(client.jsonMapper, r);
-		};
+	protected <V> HttpGetCall<V> provideCall(final HttpUrl url, final Headers headers,
+			final ResponseReader<V> reader) {
+		return client -> client.getPlain(url, headers, keycloakContext, reader);
 	}
 
 	@Override
-	protected HttpGetCall<T> provideJavaTypeCall(final String url, final JavaType javaType,
-			final Map<String, String> headers) {
-		return client -> {
-			String r = client.getPlain(url, StringParam.builder().parameters(headers).build());
-			return client.jsonMapper.fromStringTo(javaType, r);
-		};
+	protected <V> HttpAsyncCall<V> provideAsyncCall(final HttpUrl url, final Headers headers,
+			final ResponseReader<V> reader) {
+		return client -> client.getAsync(url, headers, keycloakContext, reader);
+	}
+
+	/**
+	 * Execute the call against a paged {@link ListJson}-endpoint and return the
+	 * entries of all pages as a lazy stream.
+	 * <p>
+	 * Calls {@link #executePaged(boolean)} without prefetching.
+	 *
+	 * @param <E> the type of the entries (the type you specified when you created
+	 *            this builder)
+	 * @throws RestClientException if an error occurred.
+	 * @return the entries of all the pages
+	 */
+	public <E> Stream<E> executePaged() {
+		return executePaged(false);
+	}
+
+	/**
+	 * Execute the call against a paged {@link ListJson}-endpoint and return the
+	 * entries of all pages as a lazy stream.
+	 * <p>
+	 * The pages are fetched one after another (following the {@code next}-links)
+	 * while the stream is consumed, so only the current page is held in memory.
+	 * When prefetching, the next page is requested asynchronously as soon as the
+	 * current one arrives, which holds at most two pages in memory.<br>
+	 * Close the stream if you don't consume it completely to cancel the prefetch.
+	 *
+	 * @param <E>      the type of the entries (the type you specified when you
+	 *                 created this builder)
+	 * @param prefetch true to fetch the next page while the current one is
+	 *                 consumed
+	 * @throws RestClientException if an error occurred.
+	 * @return the entries of all the pages
+	 */
+	public <E> Stream<E> executePaged(final boolean prefetch) {
+		PageIterator<E> iterator = newPageIterator(prefetch);
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+				.onClose(iterator::close);
+	}
+
+	/**
+	 * Iterator-version of {@link #executePaged(boolean)}.
+	 *
+	 * @param <E>      the type of the entries
+	 * @param prefetch true to fetch the next page while the current one is
+	 *                 consumed
+	 * @return an iterator over the entries of all the pages
+	 */
+	public <E> Iterator<E> iteratePaged(final boolean prefetch) {
+		return newPageIterator(prefetch);
+	}
+
+	private <E> PageIterator<E> newPageIterator(final boolean prefetch) {
+		return new PageIterator<>(buildHttpUrl(), pageFetcher(), prefetch ? asyncPageFetcher() : null);
+	}
+
+	/**
+	 * Sets the names of the query-parameters used for offset-based paging (see
+	 * {@link #executePagedParallel(long, int)}). The defaults are
+	 * {@code offset} and {@code size}.
+	 *
+	 * @param offsetParam the name of the parameter holding the index of the first
+	 *                    entry of a page
+	 * @param sizeParam   the name of the parameter holding the size of a page
+	 * @return a {@link BaseBuilder} to provide a fluent interface.
+	 */
+	public BaseGetBuilder<T, R> pageParams(final String offsetParam, final String sizeParam) {
+		this.offsetParam = offsetParam;
+		this.sizeParam = sizeParam;
+		return this;
+	}
+
+	/**
+	 * Execute the call against an offset-based {@link ListJson}-endpoint and
+	 * fetch the pages in parallel.
+	 * <p>
+	 * The first page tells the total {@code count}. All remaining pages are then
+	 * requested at once (with at most {@code concurrency} calls in flight) instead
+	 * of following the {@code next}-links one after another. The entries are
+	 * returned in order while at most {@code concurrency + 1} pages are held in
+	 * memory.<br>
+	 * Close the stream if you don't consume it completely to cancel the calls in
+	 * flight.
+	 *
+	 * @param <E>         the type of the entries (the type you specified when you
+	 *                    created this builder)
+	 * @param pageSize    the number of entries per page
+	 * @param concurrency the maximum number of pages requested at the same time
+	 * @throws RestClientException if an error occurred.
+	 * @return the entries of all the pages
+	 */
+	public <E> Stream<E> executePagedParallel(final long pageSize, final int concurrency) {
+		ParallelPages<E>.PagesIterator iterator = this.<E>parallelPages(pageSize, concurrency).iterator();
+		return StreamSupport
+				.stream(Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED), false)
+				.onClose(iterator::close);
+	}
+
+	/**
+	 * Asynchronous version of {@link #executePagedParallel(long, int)} that
+	 * collects all entries.
+	 *
+	 * @param <E>         the type of the entries (the type you specified when you
+	 *                    created this builder)
+	 * @param pageSize    the number of entries per page
+	 * @param concurrency the maximum number of pages requested at the same time
+	 * @return a future of the entries of all the pages in order. It completes
+	 *         exceptionally as soon as one of the pages fails. Cancelling it
+	 *         cancels the calls in flight.
+	 */
+	public <E> CompletableFuture<List<E>> executeAllPagesAsync(final long pageSize, final int concurrency) {
+		return this.<E>parallelPages(pageSize, concurrency).all();
+	}
+
+	private <E> ParallelPages<E> parallelPages(final long pageSize, final int concurrency) {
+		return new ParallelPages<>(buildHttpUrl(), offsetParam, sizeParam, pageSize, concurrency,
+				asyncPageFetcher());
+	}
+
+	<E> Function<HttpUrl, ListJson<E>> pageFetcher() {
+		Headers headers = buildHeaders();
+		ResponseReader<ListJson<E>> reader = pageReader();
+		return url -> client.retry(retryPolicy(), provideCall(url, headers, reader));
+	}
+
+	<E> Function<HttpUrl, CompletableFuture<ListJson<E>>> asyncPageFetcher() {
+		Headers headers = buildHeaders();
+		ResponseReader<ListJson<E>> reader = pageReader();
+		return url -> client.retryAsync(retryPolicy(), provideAsyncCall(url, headers, reader));
+	}
+
+	private <E> ResponseReader<ListJson<E>> pageReader() {
+		return response -> readFrom(client.listJsonType(type), response.body());
 	}
 }
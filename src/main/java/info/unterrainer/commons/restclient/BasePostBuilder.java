@@ -1,56 +1,29 @@
 package info.unterrainer.commons.restclient;
 
-import java.util.Map;
-
-import com.fasterxml.jackson.databind.JavaType;
-
+import info.unterrainer.commons.restclient.RestClient.HttpAsyncCall;
 import info.unterrainer.commons.restclient.RestClient.HttpGetCall;
+import info.unterrainer.commons.restclient.RestClient.ResponseReader;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.RequestBody;
 
-public class BasePostBuilder<T, R> extends BaseBuilder<T, BasePostBuilder<T, R>> {
-
-	protected String mediaType = "application/json";
-	protected String body;
-	protected byte[] binary;
+public class BasePostBuilder<T, R> extends BaseBodyBuilder<T, R, BasePostBuilder<T, R>> {
 
 	BasePostBuilder(final RestClient client, final Class<?> type) {
 		super(client, type);
 	}
 
-	@SuppressWarnings("unchecked")
-	public R mediaType(final String mediaType) {
-		this.mediaType = mediaType;
-		return (R) this;
-	}
-
-	@SuppressWarnings("unchecked")
-	public R body(final String body) {
-		this.body = body;
-		return (R) this;
-	}
-
-	@SuppressWarnings("unchecked")
-	public R body(final byte[] body) {
-		this.binary = body;
-		return (R) this;
-	}
-
-	@SuppressWarnings("unchecked")
 	@Override
-	protected HttpGetCall<T> provideCall(final String url, final Class<T> type, final Map<String, String> headers) {
-		return client -> {
-			String r = client.postPlain(url, StringParam.builder().parameters(headers).build(), mediaType, body,
-					binary);
-			return (T) castTo(client.jsonMapper, r);
-		};
+	protected <V> HttpGetCall<V> provideCall(final HttpUrl url, final Headers headers,
+			final ResponseReader<V> reader) {
+		RequestBody body = content.apply(mediaType);
+		return client -> client.postPlain(url, headers, keycloakContext, body, reader);
 	}
 
 	@Override
-	protected HttpGetCall<T> provideJavaTypeCall(final String url, final JavaType javaType,
-			final Map<String, String> headers) {
-		return client -> {
-			String r = client.postPlain(url, StringParam.builder().parameters(headers).build(), mediaType, body,
-					binary);
-			return client.jsonMapper.fromStringTo(javaType, r);
-		};
+	protected <V> HttpAsyncCall<V> provideAsyncCall(final HttpUrl url, final Headers headers,
+			final ResponseReader<V> reader) {
+		RequestBody body = content.apply(mediaType);
+		return client -> client.postAsync(url, headers, keycloakContext, body, reader);
 	}
 }
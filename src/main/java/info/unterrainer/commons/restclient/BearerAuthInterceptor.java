@@ -0,0 +1,79 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.Authenticator;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.Route;
+
+/**
+ * Attaches the bearer-token of the {@link KeycloakContext} a request is tagged
+ * with.
+ * <p>
+ * If the server answers with 401, the token is renewed once and the request is
+ * replayed with the new one (redirects don't count). Requests without a context
+ * are handed to the delegate-authenticator (if there is one).
+ * <p>
+ * Failing to get a token is reported as an {@link InterceptorException}, so
+ * that asynchronous calls see it instead of a cancelled call.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public class BearerAuthInterceptor implements Interceptor, Authenticator {
+
+	private static final String AUTHORIZATION = "Authorization";
+	private static final String BEARER = "Bearer ";
+
+	private final RestClient client;
+	private final Authenticator delegate;
+
+	@Override
+	public Response intercept(final Interceptor.Chain chain) throws IOException {
+		Request request = chain.request();
+		KeycloakContext kcc = request.tag(KeycloakContext.class);
+		if (kcc == null || request.header(AUTHORIZATION) != null)
+			return chain.proceed(request);
+
+		String token;
+		try {
+			token = kcc.accessToken(client);
+		} catch (RuntimeException e) {
+			throw new InterceptorException(e);
+		}
+		return chain.proceed(request.newBuilder().header(AUTHORIZATION, BEARER + token).build());
+	}
+
+	@Override
+	public Request authenticate(final Route route, final Response response) throws IOException {
+		Request request = response.request();
+		KeycloakContext kcc = request.tag(KeycloakContext.class);
+		if (kcc == null)
+			return delegate == null ? null : delegate.authenticate(route, response);
+		if (unauthorizedResponses(response) > 1)
+			// We already tried with a new token.
+			return null;
+
+		String header = request.header(AUTHORIZATION);
+		String rejected = header != null && header.startsWith(BEARER) ? header.substring(BEARER.length()) : null;
+		log.debug("Bearer-token rejected by [{}]. Renewing it.", request.url().host());
+		String token;
+		try {
+			token = kcc.renew(client, rejected);
+		} catch (RuntimeException e) {
+			throw new InterceptorException(e);
+		}
+		return request.newBuilder().header(AUTHORIZATION, BEARER + token).build();
+	}
+
+	private static int unauthorizedResponses(final Response response) {
+		int count = 0;
+		for (Response r = response; r != null; r = r.priorResponse())
+			if (r.code() == 401)
+				count++;
+		return count;
+	}
+}
@@ -0,0 +1,127 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Runs the asynchronous calls of a list of builders with a limited number of
+ * calls in flight and collects their outcomes in order.
+ */
+class BulkExecution<T> {
+
+	private final List<? extends BaseBuilder<T, ?>> builders;
+	private final BulkOptions options;
+	private final AtomicReferenceArray<CompletableFuture<T>> calls;
+	private final AtomicReferenceArray<Outcome<T>> outcomes;
+	private final AtomicInteger next = new AtomicInteger();
+	private final AtomicInteger starts = new AtomicInteger();
+	private final AtomicInteger remaining;
+	private final CompletableFuture<List<Outcome<T>>> result = new CompletableFuture<>();
+
+	BulkExecution(final List<? extends BaseBuilder<T, ?>> builders, final BulkOptions options) {
+		if (options.getMaxInFlight() < 1)
+			throw new IllegalArgumentException("maxInFlight has to be at least 1.");
+		this.builders = builders;
+		this.options = options;
+		calls = new AtomicReferenceArray<>(builders.size());
+		outcomes = new AtomicReferenceArray<>(builders.size());
+		remaining = new AtomicInteger(builders.size());
+	}
+
+	CompletableFuture<List<Outcome<T>>> run(final ScheduledExecutorService scheduler) {
+		if (builders.isEmpty()) {
+			result.complete(new ArrayList<>());
+			return result;
+		}
+		if (options.getDeadlineMillis() > 0L) {
+			ScheduledFuture<?> deadline = scheduler.schedule(() -> abort(new TimeoutException(
+					String.format("The calls were not done within %sms.", options.getDeadlineMillis()))),
+					options.getDeadlineMillis(), TimeUnit.MILLISECONDS);
+			result.whenComplete((r, e) -> deadline.cancel(false));
+		}
+		result.whenComplete((r, e) -> {
+			if (result.isCancelled())
+				abort(new CancellationException("The bulk-execution was cancelled."));
+		});
+		for (int i = 0; i < Math.min(options.getMaxInFlight(), builders.size()); i++)
+			startNext();
+		return result;
+	}
+
+	/**
+	 * Starts the next call. A call that completes right away (like one failing
+	 * fast on an open circuit) asks for the next one from within the loop of the
+	 * caller instead of recursing, so the stack doesn't grow with the number of
+	 * calls.
+	 */
+	private void startNext() {
+		if (starts.getAndIncrement() > 0)
+			return;
+		do
+			startOne();
+		while (starts.decrementAndGet() > 0);
+	}
+
+	private void startOne() {
+		int index;
+		do {
+			index = next.getAndIncrement();
+			if (index >= builders.size())
+				return;
+		} while (outcomes.get(index) != null);
+
+		int i = index;
+		CompletableFuture<T> call;
+		try {
+			call = builders.get(i).executeAsync();
+		} catch (RuntimeException e) {
+			call = CompletableFuture.failedFuture(e);
+		}
+		calls.set(i, call);
+		// An abort that ran while the call was started didn't see it.
+		if (outcomes.get(i) != null)
+			call.cancel(true);
+		call.whenComplete((value, e) -> {
+			if (e == null)
+				finish(i, Outcome.success(value));
+			else {
+				finish(i, Outcome.failure(RestClient.unwrap(e)));
+				if (options.isFailFast())
+					abort(new CancellationException("Cancelled after another call failed."));
+			}
+			startNext();
+		});
+	}
+
+	/**
+	 * Fails all the calls that aren't done yet with the given reason and cancels
+	 * the ones in flight.
+	 */
+	private void abort(final Throwable reason) {
+		for (int i = 0; i < builders.size(); i++) {
+			if (outcomes.get(i) != null)
+				continue;
+			finish(i, Outcome.failure(reason));
+			CompletableFuture<T> call = calls.get(i);
+			if (call != null)
+				call.cancel(true);
+		}
+	}
+
+	private void finish(final int index, final Outcome<T> outcome) {
+		if (!outcomes.compareAndSet(index, null, outcome) || remaining.decrementAndGet() > 0)
+			return;
+		List<Outcome<T>> list = new ArrayList<>(outcomes.length());
+		for (int i = 0; i < outcomes.length(); i++)
+			list.add(outcomes.get(i));
+		result.complete(list);
+	}
+}
@@ -0,0 +1,39 @@
+package info.unterrainer.commons.restclient;
+
+import lombok.Builder;
+import lombok.Value;
+
+/**
+ * Describes how a bulk of calls is executed (see
+ * {@link RestClient#executeAll(java.util.Collection, BulkOptions)}).
+ */
+@Value
+@Builder(toBuilder = true)
+public class BulkOptions {
+
+	/**
+	 * At most 16 calls in flight, no deadline, cancel everything on the first
+	 * failure.
+	 */
+	public static final BulkOptions DEFAULT = BulkOptions.builder().build();
+
+	/**
+	 * The maximum number of calls in flight at the same time.
+	 */
+	@Builder.Default
+	int maxInFlight = 16;
+	/**
+	 * The time all the calls have to be done in. Calls that aren't done by then
+	 * are cancelled and fail with a {@link java.util.concurrent.TimeoutException}.
+	 * 0 means no deadline.
+	 */
+	@Builder.Default
+	long deadlineMillis = 0L;
+	/**
+	 * If true, the first failing call cancels all the calls in flight and the
+	 * ones not started yet (they fail with a
+	 * {@link java.util.concurrent.CancellationException}).
+	 */
+	@Builder.Default
+	boolean failFast = true;
+}
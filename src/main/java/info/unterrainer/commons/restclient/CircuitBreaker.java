@@ -0,0 +1,180 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Builder;
+import lombok.extern.slf4j.Slf4j;
+import okhttp3.HttpUrl;
+
+/**
+ * A circuit-breaker that keeps a separate state for every host (scheme, host
+ * and port of the URL).
+ * <p>
+ * After {@code failureThreshold} consecutive failures (I/O-errors or 5xx
+ * responses) the circuit of a host opens and all calls to it fail fast for
+ * {@code openMillis}. After that a single trial-call is let through. If it
+ * succeeds the circuit closes again, otherwise it stays open for another
+ * {@code openMillis}. A trial-call that doesn't report back within
+ * {@code trialTimeoutMillis} is considered lost and the next call becomes the
+ * trial.
+ */
+@Slf4j
+@Builder
+public class CircuitBreaker {
+
+	@Builder.Default
+	private final int failureThreshold = 5;
+	@Builder.Default
+	private final long openMillis = 30000L;
+	@Builder.Default
+	private final long trialTimeoutMillis = 60000L;
+
+	private final Map<String, HostState> hosts = new ConcurrentHashMap<>();
+
+	private static class HostState {
+		private final AtomicInteger failures = new AtomicInteger();
+		/**
+		 * The time the trial-call in flight started at or 0, if there is none.
+		 */
+		private final AtomicLong trialStartedAt = new AtomicLong();
+		private volatile long openedAt;
+	}
+
+	/**
+	 * Checks if a call to the given URL may go out.
+	 *
+	 * @param url the URL to call
+	 * @return false, if the circuit for the host of the URL is open
+	 */
+	public boolean allow(final String url) {
+		return allowKey(keyOf(url));
+	}
+
+	public void onSuccess(final String url) {
+		onSuccessKey(keyOf(url));
+	}
+
+	public void onFailure(final String url) {
+		onFailureKey(keyOf(url));
+	}
+
+	/**
+	 * Asks for the permission to make a call to the given URL.
+	 *
+	 * @param url the URL to call
+	 * @return the permit the outcome of the call has to be reported to or null,
+	 *         if the circuit for the host of the URL is open
+	 */
+	Permit acquire(final HttpUrl url) {
+		String key = keyOf(url);
+		long admission = admit(key);
+		return admission < 0L ? null : new Permit(key, admission);
+	}
+
+	private boolean allowKey(final String key) {
+		return admit(key) >= 0L;
+	}
+
+	/**
+	 * Returns -1 if the call may not go out, the start of the trial if it is the
+	 * trial-call and 0 otherwise.
+	 */
+	private long admit(final String key) {
+		HostState state = hosts.computeIfAbsent(key, k -> new HostState());
+		long openedAt = state.openedAt;
+		if (openedAt == 0L)
+			return 0L;
+		long now = System.currentTimeMillis();
+		if (now - openedAt < openMillis)
+			return -1L;
+		long trial = state.trialStartedAt.get();
+		if (trial != 0L && now - trial < trialTimeoutMillis)
+			return -1L;
+		if (trial != 0L)
+			log.debug("Trial-call to [{}] didn't report back. Letting another one through.", key);
+		return state.trialStartedAt.compareAndSet(trial, now) ? now : -1L;
+	}
+
+	private void onSuccessKey(final String key) {
+		HostState state = hosts.get(key);
+		if (state == null)
+			return;
+		state.failures.set(0);
+		state.openedAt = 0L;
+		state.trialStartedAt.set(0L);
+	}
+
+	private void onFailureKey(final String key) {
+		HostState state = hosts.computeIfAbsent(key, k -> new HostState());
+		if (state.trialStartedAt.getAndSet(0L) != 0L) {
+			state.openedAt = System.currentTimeMillis();
+			log.debug("Trial-call to [{}] failed. Circuit stays open.", key);
+			return;
+		}
+		if (state.failures.incrementAndGet() >= failureThreshold && state.openedAt == 0L) {
+			state.openedAt = System.currentTimeMillis();
+			log.warn("Circuit for [{}] opened after [{}] consecutive failures.", key, failureThreshold);
+		}
+	}
+
+	/**
+	 * Frees the trial-slot if the given trial still holds it.
+	 */
+	private void releaseTrial(final String key, final long trialStartedAt) {
+		HostState state = hosts.get(key);
+		if (state != null && state.trialStartedAt.compareAndSet(trialStartedAt, 0L))
+			log.debug("Trial-call to [{}] was aborted. Letting another one through.", key);
+	}
+
+	/**
+	 * The permission to make a single call.
+	 * <p>
+	 * Only the first outcome reported counts, so a call that ends in several ways
+	 * (like failing after it was cancelled) is counted once.
+	 */
+	final class Permit {
+		private final String key;
+		private final long trialStartedAt;
+		private final AtomicBoolean settled = new AtomicBoolean();
+
+		private Permit(final String key, final long trialStartedAt) {
+			this.key = key;
+			this.trialStartedAt = trialStartedAt;
+		}
+
+		void onSuccess() {
+			if (settled.compareAndSet(false, true))
+				onSuccessKey(key);
+		}
+
+		void onFailure() {
+			if (settled.compareAndSet(false, true))
+				onFailureKey(key);
+		}
+
+		/**
+		 * Gives the permit back without an outcome, because the call was cancelled
+		 * or failed before it got an answer of the host. If it was the trial-call,
+		 * the next call becomes the trial.
+		 */
+		void release() {
+			if (settled.compareAndSet(false, true) && trialStartedAt != 0L)
+				releaseTrial(key, trialStartedAt);
+		}
+	}
+
+	private String keyOf(final String url) {
+		HttpUrl u = HttpUrl.parse(url);
+		if (u == null)
+			return url;
+		return keyOf(u);
+	}
+
+	private String keyOf(final HttpUrl url) {
+		return url.scheme() + "://" + url.host() + ":" + url.port();
+	}
+}
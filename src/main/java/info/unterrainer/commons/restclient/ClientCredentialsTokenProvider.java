@@ -0,0 +1,16 @@
+package info.unterrainer.commons.restclient;
+
+/**
+ * Gets tokens using the client-credentials grant (service-to-service calls).
+ */
+public class ClientCredentialsTokenProvider extends KeycloakTokenProvider {
+
+	public ClientCredentialsTokenProvider(final String keycloakUrl, final String clientId, final String clientSecret) {
+		super(keycloakUrl, clientId, clientSecret);
+	}
+
+	@Override
+	protected String grant() {
+		return "&grant_type=client_credentials";
+	}
+}
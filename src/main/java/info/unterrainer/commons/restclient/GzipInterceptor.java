@@ -1,7 +1,13 @@
 package info.unterrainer.commons.restclient;
 
 import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.Deflater;
 
+import info.unterrainer.commons.restclient.compression.Codecs;
+import info.unterrainer.commons.restclient.compression.ContentCodec;
 import okhttp3.Headers;
 import okhttp3.Interceptor;
 import okhttp3.MediaType;
@@ -10,39 +16,118 @@ import okhttp3.Request.Builder;
 import okhttp3.RequestBody;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
+import okio.Buffer;
 import okio.BufferedSink;
-import okio.GzipSink;
-import okio.GzipSource;
 import okio.Okio;
-
+import okio.Source;
+
+/**
+ * Negotiates the content-coding of the responses and compresses request-bodies.
+ * <p>
+ * The codecs are offered in the {@code Accept-Encoding} header in the given
+ * order and responses in one of them are decompressed lazily. Requests with a
+ * {@code Range} header are left alone, since the range would apply to the
+ * encoded representation (just like OkHttp does it). A request-body is
+ * compressed if the request has a {@code Content-Encoding} header naming one of
+ * the codecs (see {@link BaseBuilder#compress(String)}) and the body is at
+ * least {@code minCompressSize} bytes long. Bodies with any other
+ * {@code Content-Encoding} are considered encoded by the caller already and
+ * sent as they are. Bodies of a known size are compressed up
+ * front, so that they are sent with a {@code Content-Length} instead of being
+ * chunked.
+ */
 public class GzipInterceptor implements Interceptor {
+
+	public static final long DEFAULT_MIN_COMPRESS_SIZE = 1024L;
+	private static final long MAX_BUFFERED_SIZE = 1024L * 1024L;
+
+	private final Map<String, ContentCodec> codecs = new LinkedHashMap<>();
+	private final String acceptEncoding;
+	private final long minCompressSize;
+
+	public GzipInterceptor() {
+		this(Codecs.available(Deflater.DEFAULT_COMPRESSION), DEFAULT_MIN_COMPRESS_SIZE);
+	}
+
+	public GzipInterceptor(final List<ContentCodec> codecs, final long minCompressSize) {
+		for (ContentCodec codec : codecs)
+			this.codecs.put(codec.encoding(), codec);
+		acceptEncoding = String.join(", ", this.codecs.keySet());
+		this.minCompressSize = minCompressSize;
+	}
+
+	/**
+	 * Returns the codec compressing request-bodies with the given coding.
+	 *
+	 * @param encoding the name of the content-coding
+	 * @return the codec
+	 * @throws IllegalArgumentException if the coding isn't supported for
+	 *                                  request-bodies
+	 */
+	public ContentCodec encoderFor(final String encoding) {
+		return Codecs.encoderFor(List.copyOf(codecs.values()), encoding);
+	}
+
 	@Override
 	public Response intercept(final Interceptor.Chain chain) throws IOException {
 
 		Request originalRequest = chain.request();
 
-		if (acceptGzipAlreadySetAndNoContentToZip(originalRequest))
+		// The caller negotiates the coding (or asks for a range) and gets the raw response.
+		boolean negotiate = originalRequest.header("Accept-Encoding") == null
+				&& originalRequest.header("Range") == null && !codecs.isEmpty();
+		ContentCodec requestCodec = requestCodec(originalRequest);
+		if (!negotiate && requestCodec == null)
 			return chain.proceed(originalRequest);
 
-		Builder newRequestBuilder = originalRequest.newBuilder().addHeader("Accept-Encoding", "gzip");
-		if (contentToZip(originalRequest))
-			newRequestBuilder.method(originalRequest.method(), gzip(originalRequest.body()));
+		Builder newRequestBuilder = originalRequest.newBuilder();
+		if (negotiate)
+			newRequestBuilder.header("Accept-Encoding", acceptEncoding);
+		if (requestCodec != null)
+			compress(originalRequest, requestCodec, newRequestBuilder);
 
 		// Make the call.
 		Response response = chain.proceed(newRequestBuilder.build());
 
-		if (isGzipped(response))
-			return unzip(response);
+		if (negotiate)
+			return decompress(response);
+		return response;
+	}
+
+	private ContentCodec requestCodec(final Request request) {
+		String encoding = request.header("Content-Encoding");
+		if (request.body() == null || encoding == null)
+			return null;
+		ContentCodec codec = codecs.get(encoding.trim().toLowerCase());
+		if (codec == null || !codec.canEncode())
+			return null;
+		return codec;
+	}
+
+	private void compress(final Request request, final ContentCodec codec, final Builder builder)
+			throws IOException {
+		RequestBody body = request.body();
+		long length = body.contentLength();
+		if (length >= 0L && length < minCompressSize) {
+			// Not worth it. Send it as it is.
+			builder.removeHeader("Content-Encoding");
+			return;
+		}
+		if (length >= 0L && length <= MAX_BUFFERED_SIZE && !body.isOneShot())
+			builder.method(request.method(), compressBuffered(body, codec));
 		else
-			return response;
+			builder.method(request.method(), compressStreaming(body, codec));
 	}
 
-	private boolean acceptGzipAlreadySetAndNoContentToZip(final Request originalRequest) {
-		return originalRequest.header("Accept-Encoding") == "gzip"
-				&& (originalRequest.body() == null || originalRequest.header("Content-Encoding") != "gzip");
+	private RequestBody compressBuffered(final RequestBody body, final ContentCodec codec) throws IOException {
+		Buffer buffer = new Buffer();
+		BufferedSink compressingSink = Okio.buffer(codec.encode(buffer));
+		body.writeTo(compressingSink);
+		compressingSink.close();
+		return RequestBody.create(buffer.readByteString(), body.contentType());
 	}
 
-	private RequestBody gzip(final RequestBody body) {
+	private RequestBody compressStreaming(final RequestBody body, final ContentCodec codec) {
 		return new RequestBody() {
 			@Override
 			public MediaType contentType() {
@@ -54,24 +139,41 @@ public class GzipInterceptor implements Interceptor {
 				return -1; // We don't know the compressed length in advance!
 			}
 
+			@Override
+			public boolean isOneShot() {
+				return body.isOneShot();
+			}
+
 			@Override
 			public void writeTo(final BufferedSink sink) throws IOException {
-				BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
-				body.writeTo(gzipSink);
-				gzipSink.close();
+				BufferedSink compressingSink = Okio.buffer(codec.encode(sink));
+				body.writeTo(compressingSink);
+				compressingSink.close();
 			}
 		};
 	}
 
-	private Response unzip(final Response response) throws IOException {
+	/**
+	 * Wraps the body of the response in the decoders of its
+	 * {@code Content-Encoding}, so that it is decompressed lazily while the
+	 * consumer reads it.
+	 */
+	private Response decompress(final Response response) throws IOException {
 
-		if (response.body() == null)
+		String contentEncoding = response.header("Content-Encoding");
+		if (response.body() == null || contentEncoding == null || !promisesBody(response))
 			return response;
 
-		GzipSource gzipSource = new GzipSource(response.body().source());
-		String bodyString = Okio.buffer(gzipSource).readUtf8();
+		// The codings are listed in the order they were applied.
+		String[] encodings = contentEncoding.split(",");
+		for (String encoding : encodings)
+			if (!codecs.containsKey(encoding.trim().toLowerCase()))
+				return response;
 
-		ResponseBody responseBody = ResponseBody.create(bodyString, response.body().contentType());
+		Source source = response.body().source();
+		for (int i = encodings.length - 1; i >= 0; i--)
+			source = codecs.get(encodings[i].trim().toLowerCase()).decode(source);
+		ResponseBody responseBody = ResponseBody.create(Okio.buffer(source), response.body().contentType(), -1L);
 
 		Headers strippedHeaders = response.headers()
 				.newBuilder()
@@ -82,11 +184,19 @@ public class GzipInterceptor implements Interceptor {
 
 	}
 
-	private Boolean isGzipped(final Response response) {
-		return response.header("Content-Encoding") != null && response.header("Content-Encoding").equals("gzip");
-	}
-
-	private boolean contentToZip(final Request originalRequest) {
-		return originalRequest.body() != null && originalRequest.header("Content-Encoding") == "gzip";
+	/**
+	 * Returns false for responses that have no body, even though they may carry
+	 * a {@code Content-Encoding} (like the ones to HEAD-requests or a 304), since
+	 * the decoders fail on an empty stream.
+	 */
+	private static boolean promisesBody(final Response response) {
+		if (response.request().method().equals("HEAD"))
+			return false;
+		int code = response.code();
+		if ((code < 100 || code >= 200) && code != 204 && code != 304)
+			return true;
+		// Broken servers may still send a body, if they say so.
+		return response.body().contentLength() > 0L
+				|| "chunked".equalsIgnoreCase(response.header("Transfer-Encoding"));
 	}
 }
@@ -0,0 +1,22 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+
+/**
+ * Carries a {@link RuntimeException} of an interceptor (like a failed
+ * token-refresh) through OkHttp, which only hands {@link IOException}s to the
+ * callbacks of asynchronous calls. The {@link RestClient} rethrows the cause.
+ */
+class InterceptorException extends IOException {
+
+	private static final long serialVersionUID = -3120785540624473015L;
+
+	InterceptorException(final RuntimeException cause) {
+		super(cause.getMessage(), cause);
+	}
+
+	@Override
+	public synchronized RuntimeException getCause() {
+		return (RuntimeException) super.getCause();
+	}
+}
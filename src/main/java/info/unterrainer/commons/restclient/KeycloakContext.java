@@ -1,29 +1,85 @@
 package info.unterrainer.commons.restclient;
 
-import java.io.UnsupportedEncodingException;
-import java.net.URLEncoder;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 
+import info.unterrainer.commons.restclient.exceptions.RestClientException;
 import info.unterrainer.commons.restclient.exceptions.UnauthorizedException;
 import info.unterrainer.commons.restclient.jsons.TokenResponseJson;
-import lombok.Getter;
-import lombok.RequiredArgsConstructor;
+import lombok.Value;
 import lombok.extern.slf4j.Slf4j;
 
+/**
+ * Holds the tokens of a realm and attaches them to the calls made with the
+ * builders it creates.
+ * <p>
+ * The tokens are cached and shared by all threads. How a token is obtained is
+ * up to the {@link TokenProvider}, so one {@link RestClient} may be used with
+ * several contexts (and realms) at the same time.
+ */
 @Slf4j
-@RequiredArgsConstructor
 public class KeycloakContext {
 
-	private final String keycloakUrl;
-	private final String userName;
-	private final String password;
-	private final String clientId;
-	private final String clientSecret;
-	@Getter
-	private String accessToken;
-	@Getter
-	private String refreshToken;
-	@Getter
-	private Long refreshTimestamp;
+	private static final ScheduledExecutorService RENEWAL_SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "keycloak-token-renewal");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final TokenProvider tokenProvider;
+
+	private volatile TokenState state;
+	private volatile double renewalFraction;
+	/**
+	 * True, if the token was used since the last proactive renewal.
+	 */
+	private volatile boolean used;
+	private final AtomicReference<CompletableFuture<TokenState>> inFlight = new AtomicReference<>();
+	private final AtomicReference<ScheduledFuture<?>> renewal = new AtomicReference<>();
+
+	@Value
+	private static class TokenState {
+		String accessToken;
+		String refreshToken;
+		long refreshTimestamp;
+		long refreshTokenTimestamp;
+
+		boolean isValidAt(final long now) {
+			return accessToken != null && now <= refreshTimestamp;
+		}
+
+		boolean isRefreshableAt(final long now) {
+			return refreshToken != null && now <= refreshTokenTimestamp;
+		}
+	}
+
+	public KeycloakContext(final String keycloakUrl, final String userName, final String password,
+			final String clientId, final String clientSecret) {
+		this(new PasswordTokenProvider(keycloakUrl, userName, password, clientId, clientSecret));
+	}
+
+	public KeycloakContext(final TokenProvider tokenProvider) {
+		this.tokenProvider = tokenProvider;
+	}
+
+	public static KeycloakContext password(final String keycloakUrl, final String userName, final String password,
+			final String clientId, final String clientSecret) {
+		return new KeycloakContext(keycloakUrl, userName, password, clientId, clientSecret);
+	}
+
+	public static KeycloakContext clientCredentials(final String keycloakUrl, final String clientId,
+			final String clientSecret) {
+		return new KeycloakContext(new ClientCredentialsTokenProvider(keycloakUrl, clientId, clientSecret));
+	}
+
+	public static KeycloakContext staticToken(final String accessToken) {
+		return new KeycloakContext(new StaticTokenProvider(accessToken));
+	}
 
 	public <T> GetKeycloakBuilder<T> get(final RestClient client, final Class<?> type) {
 		return new GetKeycloakBuilder<>(client, type, this);
@@ -33,68 +89,215 @@ public class KeycloakContext {
 		return new PostKeycloakBuilder<>(client, type, this);
 	}
 
-	void update(final RestClient client) {
-		if (userName == null) {
-			log.error("UserName is null");
-			return;
-		}
-		if (password == null) {
-			log.error("Password is null");
-			return;
-		}
+	public <T> PutKeycloakBuilder<T> put(final RestClient client, final Class<?> type) {
+		return new PutKeycloakBuilder<>(client, type, this);
+	}
 
-		long now = System.currentTimeMillis();
-		log.debug("now: [{}]", now);
-		log.debug("accessToken: [{}]", accessToken);
-		log.debug("refreshTimestamp: [{}]", refreshTimestamp);
+	public <T> DelKeycloakBuilder<T> del(final RestClient client, final Class<?> type) {
+		return new DelKeycloakBuilder<>(client, type, this);
+	}
+
+	public String getAccessToken() {
+		TokenState s = state;
+		return s == null ? null : s.getAccessToken();
+	}
 
-		if (refreshTimestamp != null) {
-			long delta = refreshTimestamp - now;
-			log.debug("valid for another: [{}]s", (delta - delta % 1000) / 1000);
+	public String getRefreshToken() {
+		TokenState s = state;
+		return s == null ? null : s.getRefreshToken();
+	}
+
+	public Long getRefreshTimestamp() {
+		TokenState s = state;
+		return s == null ? null : s.getRefreshTimestamp();
+	}
+
+	/**
+	 * Renews the token in the background after the given fraction of its lifetime
+	 * has passed, so that the calls never have to wait for a new token.
+	 * <p>
+	 * A token that wasn't used since the last renewal isn't renewed again, so
+	 * the renewal of a context that isn't used anymore stops by itself. Call
+	 * {@link #stopRenewal()} to stop it right away.
+	 *
+	 * @param fraction the fraction of {@code expires_in} after which to renew the
+	 *                 token (0.75 renews a token valid for 300s after 225s). 0
+	 *                 disables the renewal.
+	 * @return this context to provide a fluent interface.
+	 */
+	public KeycloakContext renewProactively(final double fraction) {
+		if (fraction < 0D || fraction >= 1D)
+			throw new IllegalArgumentException("The fraction has to be in [0, 1).");
+		renewalFraction = fraction;
+		if (fraction == 0D)
+			cancelRenewal();
+		return this;
+	}
+
+	/**
+	 * Stops the proactive renewal (see {@link #renewProactively(double)}). The
+	 * token is then only renewed when it's used after it expired.
+	 */
+	public void stopRenewal() {
+		renewProactively(0D);
+	}
+
+	private void cancelRenewal() {
+		ScheduledFuture<?> previous = renewal.getAndSet(null);
+		if (previous != null)
+			previous.cancel(false);
+	}
+
+	/**
+	 * Returns a valid access-token, getting a new one if necessary.
+	 *
+	 * @param client the client to get a new token with
+	 * @return the access-token
+	 */
+	String accessToken(final RestClient client) {
+		if (!used)
+			used = true;
+		TokenState s = state;
+		if (s == null || !s.isValidAt(System.currentTimeMillis()))
+			s = refresh(client, false);
+		return s.getAccessToken();
+	}
+
+	/**
+	 * Returns a new access-token after the server rejected the given one.
+	 * <p>
+	 * If the token has already been replaced in the meantime, the current one is
+	 * returned without getting another one.
+	 *
+	 * @param client        the client to get a new token with
+	 * @param rejectedToken the token the server rejected
+	 * @return the new access-token
+	 */
+	String renew(final RestClient client, final String rejectedToken) {
+		TokenState s = state;
+		if (s != null && s.getAccessToken() != null && !s.getAccessToken().equals(rejectedToken))
+			return s.getAccessToken();
+		return refresh(client, true).getAccessToken();
+	}
+
+	/**
+	 * Gets a new token.
+	 * <p>
+	 * Only one request to the token-endpoint is in flight at any time. Threads
+	 * that need a token while it is running wait for its result instead of
+	 * making their own request.
+	 */
+	private TokenState refresh(final RestClient client, final boolean force) {
+		CompletableFuture<TokenState> mine = new CompletableFuture<>();
+		CompletableFuture<TokenState> running = inFlight.compareAndExchange(null, mine);
+		if (running != null)
+			return await(running);
+
+		try {
+			TokenState s = state;
+			if (force || s == null || !s.isValidAt(System.currentTimeMillis())) {
+				s = timedFetch(client, s);
+				state = s;
+				scheduleRenewal(client, s);
+			}
+			mine.complete(s);
+			return s;
+		} catch (RuntimeException e) {
+			mine.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.set(null);
 		}
+	}
 
-		if (accessToken == null || refreshTimestamp == null || now > refreshTimestamp) {
-			String cs = "";
-			if (clientSecret != null)
-				try {
-					cs = "&client_secret=" + URLEncoder.encode(clientSecret, "UTF-8");
-				} catch (UnsupportedEncodingException e1) {
-					log.error("Could not URLEncode clientSecret: [{}]", clientSecret);
-				}
+	private TokenState await(final CompletableFuture<TokenState> running) {
+		try {
+			return running.join();
+		} catch (CompletionException e) {
+			if (e.getCause() instanceof RuntimeException)
+				throw (RuntimeException) e.getCause();
+			throw new UnauthorizedException("Getting an access-token from the keycloak instance didn't work out.",
+					e.getCause());
+		}
+	}
 
-			String encUserName = null;
+	private void scheduleRenewal(final RestClient client, final TokenState s) {
+		double fraction = renewalFraction;
+		if (fraction <= 0D || s.getRefreshTimestamp() == Long.MAX_VALUE)
+			return;
+		long lifetime = s.getRefreshTimestamp() - System.currentTimeMillis();
+		// The scheduler only triggers the renewal, so that a slow token-endpoint
+		// doesn't hold up the renewals of the other contexts.
+		ScheduledFuture<?> next = RENEWAL_SCHEDULER.schedule(() -> VirtualThreads.executor().execute(() -> {
+			if (!used) {
+				log.debug("Access-token wasn't used since the last renewal. Renewing on next use.");
+				return;
+			}
+			used = false;
 			try {
-				encUserName = URLEncoder.encode(userName, "UTF-8");
-			} catch (UnsupportedEncodingException e) {
-				log.error("Could not URLEncode userName: [{}]", userName);
+				refresh(client, true);
+			} catch (RuntimeException e) {
+				log.warn("Proactive renewal of the access-token failed. Renewing on next use.", e);
 			}
+		}), (long) (lifetime * fraction), TimeUnit.MILLISECONDS);
+		ScheduledFuture<?> previous = renewal.getAndSet(next);
+		if (previous != null)
+			previous.cancel(false);
+	}
+
+	private TokenState timedFetch(final RestClient client, final TokenState current) {
+		if (client.metrics == null)
+			return fetch(client, current);
+		long start = System.nanoTime();
+		boolean success = false;
+		try {
+			TokenState s = fetch(client, current);
+			success = true;
+			return s;
+		} finally {
+			client.metrics.recordTokenRefresh(System.nanoTime() - start, success);
+		}
+	}
 
-			String encPassword = null;
+	/**
+	 * Gets a new token using the refresh-token while it is valid and falls back to
+	 * getting one from scratch if that's not possible.
+	 */
+	private TokenState fetch(final RestClient client, final TokenState current) {
+		long now = System.currentTimeMillis();
+		if (current != null && current.isRefreshableAt(now))
 			try {
-				encPassword = URLEncoder.encode(password, "UTF-8");
-			} catch (UnsupportedEncodingException e) {
-				log.error("Could not URLEncode password: [{}]", password);
+				TokenResponseJson response = tokenProvider.refresh(client, current.getRefreshToken());
+				if (response != null) {
+					log.debug("Refreshed the access-token. Valid for [{}]s.", response.getExpiresIn());
+					return toState(response, current, now);
+				}
+			} catch (RestClientException e) {
+				log.debug("Refreshing the access-token failed with [{}]. Getting a new one.", e.getMessage());
 			}
 
-			String body = "client_id=" + clientId + cs + "&grant_type=password&username=" + encUserName + "&password="
-					+ encPassword;
-			log.debug("body: [{}]", body);
-
-			TokenResponseJson response = null;
-			response = client.<TokenResponseJson>post(TokenResponseJson.class)
-					.addHeader("Content-Type", "application/x-www-form-urlencoded")
-					.addHeader("Accept", "application/json")
-					.addUrl(keycloakUrl)
-					.retryShort()
-					.mediaType("application/x-www-form-urlencoded")
-					.body(body)
-					.execute();
-			if (response == null)
-				throw new UnauthorizedException("Getting an access-token from the keycloak instance didn't work out.");
-
-			accessToken = response.getAccessToken();
-			refreshToken = response.getRefreshToken();
-			refreshTimestamp = now + response.getExpiresIn() * 1000L;
-		}
+		TokenResponseJson response = tokenProvider.fetch(client);
+		if (response == null || response.getAccessToken() == null)
+			throw new UnauthorizedException("Getting an access-token from the keycloak instance didn't work out.");
+
+		log.debug("Got a new access-token valid for [{}]s.", response.getExpiresIn());
+		return toState(response, null, now);
+	}
+
+	private TokenState toState(final TokenResponseJson response, final TokenState current, final long now) {
+		String refreshToken = response.getRefreshToken();
+		long refreshTokenTimestamp;
+		if (refreshToken == null && current != null) {
+			// Keep on using the old refresh-token if the server didn't issue a new one.
+			refreshToken = current.getRefreshToken();
+			refreshTokenTimestamp = current.getRefreshTokenTimestamp();
+		} else if (response.getRefreshExpiresIn() == null || response.getRefreshExpiresIn() <= 0L)
+			// Offline-tokens (or servers that don't tell) don't expire.
+			refreshTokenTimestamp = Long.MAX_VALUE;
+		else
+			refreshTokenTimestamp = now + response.getRefreshExpiresIn() * 1000L;
+		long refreshTimestamp = response.getExpiresIn() == null ? Long.MAX_VALUE
+				: now + response.getExpiresIn() * 1000L;
+		return new TokenState(response.getAccessToken(), refreshToken, refreshTimestamp, refreshTokenTimestamp);
 	}
 }
@@ -0,0 +1,67 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+
+import info.unterrainer.commons.restclient.jsons.TokenResponseJson;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Base class for providers getting their tokens from the token-endpoint of a
+ * keycloak-realm (or any other OpenID-Connect provider).
+ * <p>
+ * Supports the refresh-token grant.
+ */
+@Slf4j
+@RequiredArgsConstructor
+public abstract class KeycloakTokenProvider implements TokenProvider {
+
+	protected final String keycloakUrl;
+	protected final String clientId;
+	protected final String clientSecret;
+
+	/**
+	 * Returns the grant-specific part of the body of the token-request.
+	 *
+	 * @return the URL-encoded parameters to append to the client-parameters
+	 */
+	protected abstract String grant();
+
+	@Override
+	public TokenResponseJson fetch(final RestClient client) {
+		return post(client, clientPart() + grant());
+	}
+
+	@Override
+	public TokenResponseJson refresh(final RestClient client, final String refreshToken) {
+		return post(client, clientPart() + "&grant_type=refresh_token&refresh_token=" + encode(refreshToken));
+	}
+
+	protected TokenResponseJson post(final RestClient client, final String body) {
+		return client.<TokenResponseJson>post(TokenResponseJson.class)
+				.addHeader("Content-Type", "application/x-www-form-urlencoded")
+				.addHeader("Accept", "application/json")
+				.addUrl(keycloakUrl)
+				.retryShort()
+				.mediaType("application/x-www-form-urlencoded")
+				.body(body)
+				.execute();
+	}
+
+	private String clientPart() {
+		String result = "client_id=" + clientId;
+		if (clientSecret != null)
+			result += "&client_secret=" + encode(clientSecret);
+		return result;
+	}
+
+	protected String encode(final String value) {
+		try {
+			return URLEncoder.encode(value, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			log.error("Could not URLEncode value.");
+			return null;
+		}
+	}
+}
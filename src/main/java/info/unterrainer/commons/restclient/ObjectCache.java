@@ -0,0 +1,88 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+import lombok.Value;
+import okhttp3.Headers;
+
+/**
+ * A size-bounded LRU-cache of deserialized response-bodies together with their
+ * validators ({@code ETag} and {@code Last-Modified}).
+ * <p>
+ * The entries are keyed by {@link RestClient.GetKey}, so callers with other
+ * credentials (headers or token-context) never see each other's objects. The
+ * cached objects are handed out to every caller making the same call, so they
+ * must not be modified.
+ */
+class ObjectCache {
+
+	@Value
+	static class Entry {
+		String eTag;
+		String lastModified;
+		Object value;
+
+		/**
+		 * Adds the conditional headers for revalidating this entry unless the caller
+		 * set them already.
+		 */
+		Headers conditional(final Headers headers) {
+			Headers.Builder builder = headers == null ? new Headers.Builder() : headers.newBuilder();
+			if (eTag != null && builder.get("If-None-Match") == null)
+				builder.set("If-None-Match", eTag);
+			if (lastModified != null && builder.get("If-Modified-Since") == null)
+				builder.set("If-Modified-Since", lastModified);
+			return builder.build();
+		}
+	}
+
+	private final ReentrantLock lock = new ReentrantLock();
+	private final Map<RestClient.GetKey, Entry> entries;
+
+	ObjectCache(final int maxEntries) {
+		entries = new LinkedHashMap<>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(final Map.Entry<RestClient.GetKey, Entry> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	Entry get(final RestClient.GetKey key) {
+		lock.lock();
+		try {
+			return entries.get(key);
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	/**
+	 * Caches the value if the response had a validator and removes a stale entry
+	 * otherwise.
+	 */
+	void put(final RestClient.GetKey key, final String eTag, final String lastModified, final Object value) {
+		lock.lock();
+		try {
+			if (value == null || (eTag == null && lastModified == null))
+				entries.remove(key);
+			else
+				entries.put(key, new Entry(eTag, lastModified, value));
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void clear() {
+		lock.lock();
+		try {
+			entries.clear();
+		} finally {
+			lock.unlock();
+		}
+	}
+}
@@ -0,0 +1,31 @@
+package info.unterrainer.commons.restclient;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Value;
+
+/**
+ * The outcome of one of the calls of a bulk-execution: either the value it
+ * returned or the reason it failed (which may be a
+ * {@link java.util.concurrent.CancellationException} or a
+ * {@link java.util.concurrent.TimeoutException} if it was aborted).
+ */
+@Value
+@AllArgsConstructor(access = AccessLevel.PRIVATE)
+public class Outcome<T> {
+
+	T value;
+	Throwable failure;
+
+	public static <T> Outcome<T> success(final T value) {
+		return new Outcome<>(value, null);
+	}
+
+	public static <T> Outcome<T> failure(final Throwable failure) {
+		return new Outcome<>(null, failure);
+	}
+
+	public boolean isSuccess() {
+		return failure == null;
+	}
+}
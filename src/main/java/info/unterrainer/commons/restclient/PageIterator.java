@@ -0,0 +1,93 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+
+import info.unterrainer.commons.restclient.exceptions.RestClientException;
+import info.unterrainer.commons.restclient.jsons.ListJson;
+import okhttp3.HttpUrl;
+
+/**
+ * Iterates over the entries of a paged {@link ListJson}-endpoint by following
+ * the {@code next}-links.
+ * <p>
+ * The pages are fetched lazily. At most the current page and (when
+ * prefetching) the next one are held in memory.
+ */
+class PageIterator<E> implements Iterator<E>, AutoCloseable {
+
+	private final Function<HttpUrl, ListJson<E>> fetch;
+	private final Function<HttpUrl, CompletableFuture<ListJson<E>>> fetchAsync;
+
+	private Iterator<E> entries = Collections.emptyIterator();
+	private HttpUrl nextUrl;
+	private CompletableFuture<ListJson<E>> prefetched;
+
+	/**
+	 * @param firstUrl   the URL of the first page
+	 * @param fetch      gets a page
+	 * @param fetchAsync gets a page asynchronously or null to not prefetch
+	 */
+	PageIterator(final HttpUrl firstUrl, final Function<HttpUrl, ListJson<E>> fetch,
+			final Function<HttpUrl, CompletableFuture<ListJson<E>>> fetchAsync) {
+		this.fetch = fetch;
+		this.fetchAsync = fetchAsync;
+		nextUrl = firstUrl;
+	}
+
+	@Override
+	public boolean hasNext() {
+		while (!entries.hasNext() && nextUrl != null)
+			load(nextUrl);
+		return entries.hasNext();
+	}
+
+	@Override
+	public E next() {
+		if (!hasNext())
+			throw new NoSuchElementException();
+		return entries.next();
+	}
+
+	/**
+	 * Cancels the prefetch of the next page, if any.
+	 */
+	@Override
+	public void close() {
+		CompletableFuture<ListJson<E>> p = prefetched;
+		prefetched = null;
+		nextUrl = null;
+		if (p != null)
+			p.cancel(true);
+	}
+
+	private void load(final HttpUrl url) {
+		ListJson<E> page = prefetched != null ? await(prefetched, url) : fetch.apply(url);
+		prefetched = null;
+		if (page == null)
+			throw new RestClientException(String.format("Fetching the page %s failed.", url));
+
+		entries = page.getEntries() == null ? Collections.emptyIterator() : page.getEntries().iterator();
+		nextUrl = page.getNext() == null || page.getNext().isBlank() ? null : url.resolve(page.getNext());
+		if (url.equals(nextUrl))
+			// A page linking to itself would never end.
+			nextUrl = null;
+		if (nextUrl != null && fetchAsync != null)
+			prefetched = fetchAsync.apply(nextUrl);
+	}
+
+	private ListJson<E> await(final CompletableFuture<ListJson<E>> future, final HttpUrl url) {
+		try {
+			return future.join();
+		} catch (CompletionException e) {
+			Throwable cause = RestClient.unwrap(e);
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new RestClientException(String.format("Fetching the page %s failed.", url), cause);
+		}
+	}
+}
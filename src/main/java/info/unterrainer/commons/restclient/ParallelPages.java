@@ -0,0 +1,246 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+
+import info.unterrainer.commons.restclient.exceptions.RestClientException;
+import info.unterrainer.commons.restclient.jsons.ListJson;
+import okhttp3.HttpUrl;
+
+/**
+ * Fetches the pages of an offset-based {@link ListJson}-endpoint in parallel.
+ * <p>
+ * The first page is fetched alone to learn the total {@code count}. After that
+ * the remaining pages are requested with at most {@code concurrency} calls in
+ * flight and merged in order. Since servers may return fewer entries per page
+ * than requested, the offsets of the remaining pages are based on the size of
+ * the first one.
+ */
+class ParallelPages<E> {
+
+	private final HttpUrl url;
+	private final String offsetParam;
+	private final String sizeParam;
+	private final long pageSize;
+	private final int concurrency;
+	private final Function<HttpUrl, CompletableFuture<ListJson<E>>> fetchAsync;
+	/**
+	 * The number of entries per page the server actually returns.
+	 */
+	private volatile long stride;
+
+	ParallelPages(final HttpUrl url, final String offsetParam, final String sizeParam, final long pageSize,
+			final int concurrency, final Function<HttpUrl, CompletableFuture<ListJson<E>>> fetchAsync) {
+		if (pageSize < 1L || concurrency < 1)
+			throw new IllegalArgumentException("The page-size and the concurrency have to be at least 1.");
+		this.url = url;
+		this.offsetParam = offsetParam;
+		this.sizeParam = sizeParam;
+		this.pageSize = pageSize;
+		this.concurrency = concurrency;
+		this.fetchAsync = fetchAsync;
+		stride = pageSize;
+	}
+
+	HttpUrl pageUrl(final int page) {
+		return url.newBuilder()
+				.setQueryParameter(offsetParam, String.valueOf(page * stride))
+				.setQueryParameter(sizeParam, String.valueOf(stride))
+				.build();
+	}
+
+	private int pagesOf(final ListJson<E> first) {
+		long count = first.getCount();
+		int size = first.getEntries() == null ? 0 : first.getEntries().size();
+		if (size >= count)
+			return 1;
+		if (size == 0)
+			throw new RestClientException(
+					String.format("The first page %s is empty, but there are %s entries.", pageUrl(0), count));
+		// The server may have clamped the size of the page.
+		stride = size;
+		return (int) Math.min(Integer.MAX_VALUE, (count + stride - 1L) / stride);
+	}
+
+	private ListJson<E> checked(final ListJson<E> page, final int index) {
+		if (page == null)
+			throw new RestClientException(String.format("Fetching the page %s failed.", pageUrl(index)));
+		return page;
+	}
+
+	/**
+	 * Fetches all pages and merges their entries.
+	 *
+	 * @return a future of all the entries in order. Cancelling it cancels the
+	 *         calls in flight.
+	 */
+	CompletableFuture<List<E>> all() {
+		CompletableFuture<List<E>> result = new CompletableFuture<>();
+		CompletableFuture<ListJson<E>> firstCall = fetchAsync.apply(pageUrl(0));
+		result.whenComplete((r, e) -> {
+			if (result.isCancelled())
+				firstCall.cancel(true);
+		});
+		firstCall.whenComplete((first, e) -> {
+			if (e != null) {
+				result.completeExceptionally(RestClient.unwrap(e));
+				return;
+			}
+			try {
+				fetchRemaining(checked(first, 0), result);
+			} catch (RuntimeException ex) {
+				result.completeExceptionally(ex);
+			}
+		});
+		return result;
+	}
+
+	private void fetchRemaining(final ListJson<E> first, final CompletableFuture<List<E>> result) {
+		int pages = pagesOf(first);
+		AtomicReferenceArray<ListJson<E>> results = new AtomicReferenceArray<>(pages);
+		AtomicReferenceArray<CompletableFuture<ListJson<E>>> calls = new AtomicReferenceArray<>(pages);
+		AtomicInteger next = new AtomicInteger(1);
+		AtomicInteger remaining = new AtomicInteger(pages - 1);
+		results.set(0, first);
+		if (pages == 1) {
+			result.complete(merge(results, first.getCount()));
+			return;
+		}
+
+		result.whenComplete((r, e) -> {
+			if (e != null)
+				for (int i = 0; i < pages; i++) {
+					CompletableFuture<ListJson<E>> call = calls.get(i);
+					if (call != null)
+						call.cancel(true);
+				}
+		});
+		Runnable[] lane = new Runnable[1];
+		lane[0] = () -> {
+			int index = next.getAndIncrement();
+			if (index >= pages || result.isDone())
+				return;
+			CompletableFuture<ListJson<E>> call = fetchAsync.apply(pageUrl(index));
+			calls.set(index, call);
+			// The result may have failed (and cancelled the calls) while this one was
+			// started.
+			if (result.isDone())
+				call.cancel(true);
+			call.whenComplete((page, e) -> {
+				try {
+					if (e != null)
+						throw new CompletionException(RestClient.unwrap(e));
+					results.set(index, checked(page, index));
+				} catch (RuntimeException ex) {
+					// Fail fast and don't start any more calls.
+					result.completeExceptionally(RestClient.unwrap(ex));
+					return;
+				}
+				if (remaining.decrementAndGet() == 0)
+					result.complete(merge(results, first.getCount()));
+				else
+					lane[0].run();
+			});
+		};
+		for (int i = 0; i < Math.min(concurrency, pages - 1); i++)
+			lane[0].run();
+	}
+
+	private List<E> merge(final AtomicReferenceArray<ListJson<E>> results, final long count) {
+		List<E> entries = new ArrayList<>((int) Math.min(Integer.MAX_VALUE - 8, count));
+		for (int i = 0; i < results.length(); i++)
+			if (results.get(i).getEntries() != null)
+				entries.addAll(results.get(i).getEntries());
+		return entries;
+	}
+
+	/**
+	 * Returns an iterator over the entries of all pages in order.
+	 * <p>
+	 * The pages are requested in a sliding window of {@code concurrency} pages
+	 * ahead of the one being consumed, so at most {@code concurrency + 1} pages
+	 * are held in memory.
+	 *
+	 * @return the iterator
+	 */
+	PagesIterator iterator() {
+		return new PagesIterator();
+	}
+
+	class PagesIterator implements Iterator<E>, AutoCloseable {
+
+		private final Deque<CompletableFuture<ListJson<E>>> window = new ArrayDeque<>();
+		private Iterator<E> entries = Collections.emptyIterator();
+		private int pages = -1;
+		private int nextPage;
+		private int currentPage;
+
+		@Override
+		public boolean hasNext() {
+			if (pages < 0) {
+				ListJson<E> first = checked(await(fetchAsync.apply(pageUrl(0)), 0), 0);
+				pages = pagesOf(first);
+				nextPage = 1;
+				fill();
+				show(first);
+			}
+			while (!entries.hasNext() && !window.isEmpty()) {
+				currentPage++;
+				ListJson<E> page = checked(await(window.poll(), currentPage), currentPage);
+				fill();
+				show(page);
+			}
+			return entries.hasNext();
+		}
+
+		@Override
+		public E next() {
+			if (!hasNext())
+				throw new NoSuchElementException();
+			return entries.next();
+		}
+
+		/**
+		 * Cancels the calls in flight.
+		 */
+		@Override
+		public void close() {
+			pages = Math.max(pages, 0);
+			nextPage = pages;
+			CompletableFuture<ListJson<E>> call;
+			while ((call = window.poll()) != null)
+				call.cancel(true);
+		}
+
+		private void fill() {
+			while (window.size() < concurrency && nextPage < pages)
+				window.add(fetchAsync.apply(pageUrl(nextPage++)));
+		}
+
+		private void show(final ListJson<E> page) {
+			entries = page.getEntries() == null ? Collections.emptyIterator() : page.getEntries().iterator();
+		}
+
+		private ListJson<E> await(final CompletableFuture<ListJson<E>> future, final int index) {
+			try {
+				return future.join();
+			} catch (CompletionException e) {
+				close();
+				Throwable cause = RestClient.unwrap(e);
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				throw new RestClientException(String.format("Fetching the page %s failed.", pageUrl(index)), cause);
+			}
+		}
+	}
+}
@@ -0,0 +1,34 @@
+package info.unterrainer.commons.restclient;
+
+import info.unterrainer.commons.restclient.exceptions.UnauthorizedException;
+import info.unterrainer.commons.restclient.jsons.TokenResponseJson;
+
+/**
+ * Gets tokens using the resource-owner password grant.
+ */
+public class PasswordTokenProvider extends KeycloakTokenProvider {
+
+	private final String userName;
+	private final String password;
+
+	public PasswordTokenProvider(final String keycloakUrl, final String userName, final String password,
+			final String clientId, final String clientSecret) {
+		super(keycloakUrl, clientId, clientSecret);
+		this.userName = userName;
+		this.password = password;
+	}
+
+	@Override
+	public TokenResponseJson fetch(final RestClient client) {
+		if (userName == null)
+			throw new UnauthorizedException("UserName is null");
+		if (password == null)
+			throw new UnauthorizedException("Password is null");
+		return super.fetch(client);
+	}
+
+	@Override
+	protected String grant() {
+		return "&grant_type=password&username=" + encode(userName) + "&password=" + encode(password);
+	}
+}
@@ -0,0 +1,162 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Supplier;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import okhttp3.MediaType;
+import okhttp3.RequestBody;
+import okio.BufferedSink;
+import okio.Okio;
+import okio.Source;
+
+/**
+ * Factories for request-bodies that are streamed to the connection instead of
+ * being materialized in memory first.
+ */
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class RequestBodies {
+
+	/**
+	 * Creates a body from a string or a byte-array (the byte-array wins).
+	 * <p>
+	 * Byte-arrays without a media-type are sent as
+	 * {@code application/octet-stream}. If both are null, the body is empty.
+	 *
+	 * @param mediaType the media-type of the body
+	 * @param body      the body as string
+	 * @param binary    the body as byte-array
+	 * @return the request-body
+	 */
+	public static RequestBody of(final String mediaType, final String body, final byte[] binary) {
+		String mt = mediaType;
+		if (binary != null && mt == null)
+			mt = "application/octet-stream";
+		if (binary != null)
+			return RequestBody.create(binary, parse(mt));
+		if (body != null)
+			return RequestBody.create(body, parse(mt));
+		return RequestBody.create("", null);
+	}
+
+	/**
+	 * Creates a body that streams the file at the given path through the pooled
+	 * segments of okio. The length is known in advance, so no chunked encoding is
+	 * needed, and the body may be replayed (on retries or redirects).
+	 *
+	 * @param mediaType the media-type of the body
+	 * @param path      the file to send
+	 * @return the request-body
+	 */
+	public static RequestBody of(final MediaType mediaType, final Path path) {
+		return new RequestBody() {
+			@Override
+			public MediaType contentType() {
+				return mediaType;
+			}
+
+			@Override
+			public long contentLength() throws IOException {
+				return Files.size(path);
+			}
+
+			@Override
+			public void writeTo(final BufferedSink sink) throws IOException {
+				try (Source source = Okio.source(path)) {
+					sink.writeAll(source);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Creates a body that streams the given input-stream.
+	 * <p>
+	 * The stream can only be read once, so the body cannot be replayed and calls
+	 * using it are not retried after the body has been sent.
+	 *
+	 * @param mediaType the media-type of the body
+	 * @param in        the stream to send (closed after sending)
+	 * @return the request-body
+	 */
+	public static RequestBody of(final MediaType mediaType, final InputStream in) {
+		return new RequestBody() {
+			@Override
+			public MediaType contentType() {
+				return mediaType;
+			}
+
+			@Override
+			public boolean isOneShot() {
+				return true;
+			}
+
+			@Override
+			public void writeTo(final BufferedSink sink) throws IOException {
+				try (Source source = Okio.source(in)) {
+					sink.writeAll(source);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Creates a body that streams a fresh source from the given supplier every
+	 * time it is written, so it may be replayed.
+	 *
+	 * @param mediaType the media-type of the body
+	 * @param source    the supplier of the source to send (closed after sending)
+	 * @return the request-body
+	 */
+	public static RequestBody of(final MediaType mediaType, final Supplier<Source> source) {
+		return new RequestBody() {
+			@Override
+			public MediaType contentType() {
+				return mediaType;
+			}
+
+			@Override
+			public void writeTo(final BufferedSink sink) throws IOException {
+				try (Source s = source.get()) {
+					sink.writeAll(s);
+				}
+			}
+		};
+	}
+
+	/**
+	 * Creates a body that serializes the given object directly into the sink of
+	 * the connection without building a string first.
+	 *
+	 * @param mediaType    the media-type of the body
+	 * @param objectMapper the mapper to serialize with
+	 * @param value        the object to serialize
+	 * @return the request-body
+	 */
+	public static RequestBody json(final MediaType mediaType, final ObjectMapper objectMapper, final Object value) {
+		ObjectWriter writer = objectMapper.writer().without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+		return new RequestBody() {
+			@Override
+			public MediaType contentType() {
+				return mediaType;
+			}
+
+			@Override
+			public void writeTo(final BufferedSink sink) throws IOException {
+				writer.writeValue(sink.outputStream(), value);
+			}
+		};
+	}
+
+	static MediaType parse(final String mediaType) {
+		return mediaType == null ? null : MediaType.parse(mediaType);
+	}
+}
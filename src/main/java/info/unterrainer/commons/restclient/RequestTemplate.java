@@ -0,0 +1,148 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+
+/**
+ * An immutable, precompiled URL with path-variables and a set of headers, for
+ * endpoints that are called over and over again with only the variables
+ * changing.
+ * <p>
+ * The URL is parsed once. Path-segments of the form {@code {name}} are
+ * variables and are bound (and encoded) at call time in the order they appear
+ * in the URL. The literal path up to the first variable is part of the
+ * precompiled URL, so a template without variables binds to the very same
+ * {@link HttpUrl} every time.<br>
+ * Use it with {@link BaseBuilder#template(RequestTemplate, Object...)}.
+ *
+ * <pre>
+ * RequestTemplate userTemplate = RequestTemplate.of("https://host/api/users/{id}/items")
+ * 		.withHeader("Accept", "application/json");
+ * client.get(Item.class).template(userTemplate, 42).isList().execute();
+ * </pre>
+ */
+public final class RequestTemplate {
+
+	private final String url;
+	private final HttpUrl root;
+	private final String[] segments;
+	private final boolean[] variables;
+	private final int variableCount;
+	private final Headers headers;
+
+	private RequestTemplate(final String url, final HttpUrl root, final String[] segments, final boolean[] variables,
+			final int variableCount, final Headers headers) {
+		this.url = url;
+		this.root = root;
+		this.segments = segments;
+		this.variables = variables;
+		this.variableCount = variableCount;
+		this.headers = headers;
+	}
+
+	/**
+	 * Precompiles the given URL.
+	 *
+	 * @param url the URL with optional path-variables like
+	 *            {@code https://host/users/{id}}
+	 * @return the template
+	 * @throws IllegalArgumentException if the URL is not valid
+	 */
+	public static RequestTemplate of(final String url) {
+		HttpUrl parsed = HttpUrl.get(url);
+		List<String> pathSegments = parsed.pathSegments();
+
+		int firstVariable = 0;
+		while (firstVariable < pathSegments.size() && !isVariable(pathSegments.get(firstVariable)))
+			firstVariable++;
+
+		HttpUrl.Builder rootBuilder = parsed.newBuilder().encodedPath("/");
+		for (int i = 0; i < firstVariable; i++)
+			rootBuilder.addPathSegment(pathSegments.get(i));
+
+		List<String> rest = new ArrayList<>(pathSegments.subList(firstVariable, pathSegments.size()));
+		String[] segments = new String[rest.size()];
+		boolean[] variables = new boolean[rest.size()];
+		int variableCount = 0;
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = rest.get(i);
+			variables[i] = isVariable(segments[i]);
+			if (variables[i])
+				variableCount++;
+		}
+		return new RequestTemplate(url, rootBuilder.build(), segments, variables, variableCount, Headers.of());
+	}
+
+	/**
+	 * Returns a copy of this template with the given header added.
+	 *
+	 * @param key   the name of the header
+	 * @param value the value of the header
+	 * @return the new template
+	 */
+	public RequestTemplate withHeader(final String key, final String value) {
+		return new RequestTemplate(url, root, segments, variables, variableCount,
+				headers.newBuilder().add(key, value).build());
+	}
+
+	public Headers headers() {
+		return headers;
+	}
+
+	public int variableCount() {
+		return variableCount;
+	}
+
+	/**
+	 * Binds the values to the path-variables.
+	 *
+	 * @param values the values of the variables in the order they appear in the
+	 *               URL (converted using {@link String#valueOf(Object)})
+	 * @return the URL
+	 * @throws IllegalArgumentException if the number of values doesn't match
+	 */
+	public HttpUrl bind(final Object... values) {
+		if (segments.length == 0) {
+			checkValues(values);
+			return root;
+		}
+		return newUrlBuilder(values).build();
+	}
+
+	/**
+	 * Binds the values to the path-variables and returns a builder to add more to
+	 * the URL (like query-parameters).
+	 *
+	 * @param values the values of the variables in the order they appear in the
+	 *               URL
+	 * @return the builder of the URL
+	 * @throws IllegalArgumentException if the number of values doesn't match
+	 */
+	public HttpUrl.Builder newUrlBuilder(final Object... values) {
+		checkValues(values);
+		HttpUrl.Builder builder = root.newBuilder();
+		int v = 0;
+		for (int i = 0; i < segments.length; i++)
+			builder.addPathSegment(variables[i] ? String.valueOf(values[v++]) : segments[i]);
+		return builder;
+	}
+
+	private void checkValues(final Object[] values) {
+		int count = values == null ? 0 : values.length;
+		if (count != variableCount)
+			throw new IllegalArgumentException(
+					String.format("The template %s needs %d values but got %d.", this, variableCount, count));
+	}
+
+	private static boolean isVariable(final String segment) {
+		return segment.length() > 2 && segment.charAt(0) == '{' && segment.charAt(segment.length() - 1) == '}';
+	}
+
+	@Override
+	public String toString() {
+		return url;
+	}
+}
@@ -1,10 +1,23 @@
 package info.unterrainer.commons.restclient;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
-import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
 
 import com.burgstaller.okhttp.AuthenticationCacheInterceptor;
 import com.burgstaller.okhttp.CachingAuthenticatorDecorator;
@@ -13,15 +26,36 @@ import com.burgstaller.okhttp.basic.BasicAuthenticator;
 import com.burgstaller.okhttp.digest.CachingAuthenticator;
 import com.burgstaller.okhttp.digest.Credentials;
 import com.burgstaller.okhttp.digest.DigestAuthenticator;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
 
+import info.unterrainer.commons.restclient.CircuitBreaker.Permit;
+import info.unterrainer.commons.restclient.compression.Codecs;
+import info.unterrainer.commons.restclient.exceptions.CircuitOpenException;
+import info.unterrainer.commons.restclient.exceptions.HttpStatusException;
 import info.unterrainer.commons.restclient.exceptions.RestClientException;
+import info.unterrainer.commons.restclient.jsons.ListJson;
+import info.unterrainer.commons.restclient.metrics.MetricsEventListener;
+import info.unterrainer.commons.restclient.metrics.MetricsRecorder;
+import info.unterrainer.commons.restclient.metrics.Phase;
 import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import lombok.Value;
 import lombok.experimental.Accessors;
 import lombok.extern.slf4j.Slf4j;
+import okhttp3.Authenticator;
+import okhttp3.Cache;
 import okhttp3.Call;
+import okhttp3.Callback;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
 import okhttp3.Headers;
+import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Protocol;
 import okhttp3.Request;
 import okhttp3.Request.Builder;
 import okhttp3.RequestBody;
@@ -31,14 +65,79 @@ import okhttp3.Response;
 @Accessors(fluent = true)
 public class RestClient {
 
-	private final Random random = new Random();
+	private static final ScheduledExecutorService RETRY_SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "rest-client-retry-scheduler");
+		t.setDaemon(true);
+		return t;
+	});
+	/**
+	 * Starts the hedges. Separate from the retries, so that hedges aren't delayed
+	 * by a burst of retries and vice versa.
+	 */
+	private static final ScheduledExecutorService HEDGE_SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "rest-client-hedge-scheduler");
+		t.setDaemon(true);
+		return t;
+	});
+
+	/**
+	 * The core all clients are derived from, so that they share the TLS-setup and
+	 * the threads of the dispatcher.
+	 */
+	private static final OkHttpClient SHARED_CORE = new OkHttpClient();
+	private static final Map<String, ConnectionPool> SHARED_POOLS = new ConcurrentHashMap<>();
+	private static final Map<String, Dispatcher> SHARED_DISPATCHERS = new ConcurrentHashMap<>();
+	private static final Map<String, Cache> SHARED_CACHES = new ConcurrentHashMap<>();
 
 	protected OkHttpClient client;
 	protected final Map<String, CachingAuthenticator> authCache = new ConcurrentHashMap<>();
 	protected final JsonMapper jsonMapper;
+	/**
+	 * The mapper streaming JSON-bodies or null, if all JSON goes through the
+	 * {@link #jsonMapper} (see {@link RestClientConfig#getObjectMapper()}).
+	 */
+	protected final ObjectMapper objectMapper;
+	private final Map<Class<?>, ObjectReader> readersByClass = new ConcurrentHashMap<>();
+	private final Map<JavaType, ObjectReader> readersByType = new ConcurrentHashMap<>();
+	private final Map<Class<?>, JavaType> listTypes = new ConcurrentHashMap<>();
+	private final Map<Class<?>, JavaType> listJsonTypes = new ConcurrentHashMap<>();
+	/**
+	 * The cache of deserialized GET-responses or null, if it's disabled.
+	 */
+	protected final ObjectCache objectCache;
+	private final Map<GetKey, Flight> inFlight = new ConcurrentHashMap<>();
+	/**
+	 * Receives the metrics of the calls or null, if there is none configured.
+	 */
+	protected final MetricsRecorder metrics;
+	/**
+	 * If set, calls to hosts that keep failing are not made at all, but fail fast
+	 * with a {@link CircuitOpenException}.
+	 */
+	@Setter
+	protected CircuitBreaker circuitBreaker;
+	/**
+	 * If set, retries are only made as long as the budget allows it.
+	 */
+	@Setter
+	protected RetryBudget retryBudget;
+	/**
+	 * Limits the number of hedges (see {@link BaseGetBuilder#hedge(long)}) to a
+	 * fraction of the hedged calls (10% by default), so that the extra load stays
+	 * bounded. Null allows a hedge for every call.
+	 */
+	@Setter
+	protected RetryBudget hedgingBudget = RetryBudget.builder().build();
+
+	protected final RestClientConfig config;
+	protected final GzipInterceptor compression;
 
 	public RestClient(final JsonMapper jsonMapper) {
-		this(jsonMapper, null, null, 10000L, 10000L, 10000L);
+		this(jsonMapper, null, null, RestClientConfig.DEFAULT);
+	}
+
+	public RestClient(final JsonMapper jsonMapper, final RestClientConfig config) {
+		this(jsonMapper, null, null, config);
 	}
 
 	public RestClient(final JsonMapper jsonMapper, final Long connectTimeoutInMillis, final Long readTimeoutInMillis,
@@ -47,19 +146,47 @@ public class RestClient {
 	}
 
 	public RestClient(final JsonMapper jsonMapper, final String userName, final String password) {
-		this(jsonMapper, userName, password, 10000L, 10000L, 10000L);
+		this(jsonMapper, userName, password, RestClientConfig.DEFAULT);
 	}
 
 	public RestClient(final JsonMapper jsonMapper, final String userName, final String password,
 			final Long connectTimeoutInMillis, final Long readTimeoutInMillis, final Long writeTimeoutInMillis) {
+		this(jsonMapper, userName, password, RestClientConfig.builder()
+				.connectTimeoutMillis(connectTimeoutInMillis)
+				.readTimeoutMillis(readTimeoutInMillis)
+				.writeTimeoutMillis(writeTimeoutInMillis)
+				.build());
+	}
+
+	public RestClient(final JsonMapper jsonMapper, final String userName, final String password,
+			final RestClientConfig config) {
 		super();
 		this.jsonMapper = jsonMapper;
-		okhttp3.OkHttpClient.Builder c = new OkHttpClient.Builder()
-				.connectTimeout(connectTimeoutInMillis, TimeUnit.MILLISECONDS)
-				.readTimeout(readTimeoutInMillis, TimeUnit.MILLISECONDS)
-				.writeTimeout(writeTimeoutInMillis, TimeUnit.MILLISECONDS)
-				.addInterceptor(new GzipInterceptor())
-				.followRedirects(true);
+		this.config = config;
+		objectMapper = config.getObjectMapper();
+		objectCache = config.getObjectCacheSize() > 0 ? new ObjectCache(config.getObjectCacheSize()) : null;
+		metrics = config.getMetrics();
+		compression = new GzipInterceptor(Codecs.available(config.getCompressionLevel()), config.getMinCompressSize());
+		ConnectionPool pool = connectionPool(config);
+		okhttp3.OkHttpClient.Builder c = SHARED_CORE.newBuilder()
+				.connectTimeout(config.getConnectTimeoutMillis(), TimeUnit.MILLISECONDS)
+				.readTimeout(config.getReadTimeoutMillis(), TimeUnit.MILLISECONDS)
+				.writeTimeout(config.getWriteTimeoutMillis(), TimeUnit.MILLISECONDS)
+				.callTimeout(config.getCallTimeoutMillis(), TimeUnit.MILLISECONDS)
+				.connectionPool(pool)
+				.dispatcher(dispatcher(config))
+				.addInterceptor(compression)
+				.followRedirects(config.isFollowRedirects());
+		if (metrics != null)
+			c.eventListenerFactory(new MetricsEventListener.Factory(metrics, pool));
+		if (config.getCacheDirectory() != null)
+			c.cache(SHARED_CACHES.computeIfAbsent(config.getCacheDirectory().getAbsolutePath(),
+					k -> new Cache(config.getCacheDirectory(), config.getCacheMaxBytes())));
+		if (config.isH2PriorKnowledge())
+			c.protocols(List.of(Protocol.H2_PRIOR_KNOWLEDGE));
+		else if (!config.getProtocols().isEmpty())
+			c.protocols(config.getProtocols());
+		Authenticator delegate = null;
 		if (userName != null || password != null) {
 			Credentials credentials = new Credentials(userName, password);
 			final BasicAuthenticator basicAuthenticator = new BasicAuthenticator(credentials);
@@ -71,75 +198,584 @@ public class RestClient {
 					.with("basic", basicAuthenticator)
 					.build();
 
-			c.authenticator(new CachingAuthenticatorDecorator(authenticator, authCache))
-					.addInterceptor(new AuthenticationCacheInterceptor(authCache));
+			delegate = new CachingAuthenticatorDecorator(authenticator, authCache);
+			c.addInterceptor(new AuthenticationCacheInterceptor(authCache));
 		}
+		BearerAuthInterceptor bearerAuth = new BearerAuthInterceptor(this, delegate);
+		c.addInterceptor(bearerAuth).authenticator(bearerAuth);
 		client = c.build();
+		if (!config.getWarmUpUrls().isEmpty())
+			warmUp();
+	}
+
+	/**
+	 * Returns the connection-pool for the given config.
+	 * <p>
+	 * Unless the config is isolated, all clients with the same pool-settings share
+	 * one pool, so that connections (and TLS-sessions) are reused across clients
+	 * and the number of idle connections is bounded process-wide.
+	 */
+	private static ConnectionPool connectionPool(final RestClientConfig config) {
+		if (config.isIsolated())
+			return newConnectionPool(config);
+		return SHARED_POOLS.computeIfAbsent(config.getMaxIdleConnections() + ":" + config.getKeepAliveMillis(),
+				k -> newConnectionPool(config));
+	}
+
+	private static ConnectionPool newConnectionPool(final RestClientConfig config) {
+		return new ConnectionPool(config.getMaxIdleConnections(), config.getKeepAliveMillis(), TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Returns the dispatcher for the given config.
+	 * <p>
+	 * Every client has its own dispatcher (and limits) unless the config opts into
+	 * sharing it with all clients with the same limits. All dispatchers run on the
+	 * threads of the shared core.
+	 */
+	private static Dispatcher dispatcher(final RestClientConfig config) {
+		if (config.isIsolated() || !config.isSharedDispatcher())
+			return newDispatcher(config);
+		return SHARED_DISPATCHERS.computeIfAbsent(
+				config.getMaxRequests() + ":" + config.getMaxRequestsPerHost() + ":" + useVirtualThreads(config),
+				k -> newDispatcher(config));
+	}
+
+	private static Dispatcher newDispatcher(final RestClientConfig config) {
+		Dispatcher dispatcher = new Dispatcher(useVirtualThreads(config) ? VirtualThreads.executor()
+				: SHARED_CORE.dispatcher().executorService());
+		dispatcher.setMaxRequests(config.getMaxRequests());
+		dispatcher.setMaxRequestsPerHost(config.getMaxRequestsPerHost());
+		return dispatcher;
+	}
+
+	private static boolean useVirtualThreads(final RestClientConfig config) {
+		if (!config.isVirtualThreads())
+			return false;
+		if (VirtualThreads.isAvailable())
+			return true;
+		log.warn("Virtual threads are not supported by this JVM. Using platform threads instead.");
+		return false;
+	}
+
+	/**
+	 * Returns a shared executor that runs every task on a new virtual thread.
+	 * <p>
+	 * Use it to make lots of blocking calls (like {@link BaseBuilder#execute()})
+	 * concurrently without a pool of platform threads limiting the throughput.
+	 * <p>
+	 * Virtual threads need Java 21 or newer. On older JVMs this returns an
+	 * unbounded pool of daemon platform threads instead.
+	 *
+	 * @return the executor
+	 */
+	public static ExecutorService virtualThreadExecutor() {
+		return VirtualThreads.executor();
+	}
+
+	/**
+	 * Opens connections to the warm-up URLs of the config by sending
+	 * {@code HEAD}-requests, so that the handshakes are done before the first
+	 * real calls.
+	 * <p>
+	 * Called by the constructor if there are warm-up URLs. Failures are only
+	 * logged.
+	 *
+	 * @return a future that completes when all requests are done
+	 */
+	public CompletableFuture<Void> warmUp() {
+		List<CompletableFuture<Void>> futures = new ArrayList<>();
+		for (String url : config.getWarmUpUrls())
+			for (int i = 0; i < config.getWarmUpConnections(); i++) {
+				CompletableFuture<Void> future = new CompletableFuture<>();
+				futures.add(future);
+				client.newCall(new Request.Builder().url(url).head().build()).enqueue(new Callback() {
+					@Override
+					public void onFailure(final Call call, final IOException e) {
+						log.warn("Warming up the connection to [{}] failed.", url, e);
+						future.complete(null);
+					}
+
+					@Override
+					public void onResponse(final Call call, final Response response) {
+						response.close();
+						future.complete(null);
+					}
+				});
+			}
+		return CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]));
+	}
+
+	/**
+	 * Returns the cached reader for the given type (only if there is an
+	 * {@link #objectMapper}).
+	 * <p>
+	 * An {@link ObjectReader} keeps the deserializer of its type once it is
+	 * resolved, so reusing it skips the lookup on every call.
+	 *
+	 * @param type the type to read
+	 * @return the reader
+	 */
+	ObjectReader readerFor(final Class<?> type) {
+		return readersByClass.computeIfAbsent(type, objectMapper::readerFor);
+	}
+
+	ObjectReader readerFor(final JavaType type) {
+		return readersByType.computeIfAbsent(type, objectMapper::readerFor);
+	}
+
+	/**
+	 * Returns the (cached) type {@code List<type>}.
+	 *
+	 * @param type the type of the elements
+	 * @return the type of the list
+	 */
+	JavaType listType(final Class<?> type) {
+		return listTypes.computeIfAbsent(type,
+				t -> jsonMapper.getTypeFactory().constructParametricType(List.class, t));
+	}
+
+	/**
+	 * Returns the (cached) type {@code ListJson<type>}.
+	 *
+	 * @param type the type of the elements
+	 * @return the type of the list
+	 */
+	JavaType listJsonType(final Class<?> type) {
+		return listJsonTypes.computeIfAbsent(type,
+				t -> jsonMapper.getTypeFactory().constructParametricType(ListJson.class, t));
+	}
+
+	/**
+	 * Creates a JSON request-body of the given object. It is serialized directly
+	 * into the connection if there is an {@link #objectMapper} and by the
+	 * {@link #jsonMapper} otherwise.
+	 *
+	 * @param mediaType the media-type of the body
+	 * @param value     the object to serialize
+	 * @return the request-body
+	 */
+	RequestBody jsonBody(final MediaType mediaType, final Object value) {
+		if (objectMapper != null)
+			return RequestBodies.json(mediaType, objectMapper, value);
+		return RequestBody.create(jsonMapper.toStringFrom(value), mediaType);
 	}
 
 	String getPlain(final String url, final StringParam headers) throws IOException {
-		String r = call("GET", url, headers, null, null, null);
-		return r;
+		return getPlain(HttpUrl.get(url), toHeaders(headers), null, response -> response.body().string());
+	}
+
+	<V> V getPlain(final HttpUrl url, final Headers headers, final KeycloakContext kcc,
+			final ResponseReader<V> reader) throws IOException {
+		if (!(reader instanceof TypedResponseReader))
+			return call("GET", url, headers, kcc, null, reader);
+		GetKey key = new GetKey(url, headers, kcc, ((TypedResponseReader<V>) reader).typeKey);
+		if (config.isCoalesceRequests())
+			return coalesce(key, () -> get(key, reader));
+		return get(key, reader);
+	}
+
+	private <V> V get(final GetKey key, final ResponseReader<V> reader) throws IOException {
+		if (objectCache != null) {
+			RevalidatingReader<V> revalidating = new RevalidatingReader<>(key, (TypedResponseReader<V>) reader);
+			return call("GET", key.url, revalidating.conditional(key.headers), key.keycloakContext, null,
+					revalidating);
+		}
+		return call("GET", key.url, key.headers, key.keycloakContext, null, reader);
 	}
 
 	String delPlain(final String url, final StringParam headers) throws IOException {
-		String r = call("DEL", url, headers, null, null, null);
-		return r;
+		return delPlain(HttpUrl.get(url), toHeaders(headers), null, response -> response.body().string());
+	}
+
+	<V> V delPlain(final HttpUrl url, final Headers headers, final KeycloakContext kcc,
+			final ResponseReader<V> reader) throws IOException {
+		return call("DEL", url, headers, kcc, null, reader);
 	}
 
 	String postPlain(final String url, final StringParam headers, final String mediaType, final String body,
 			final byte[] binary) throws IOException {
-		String r = call("POST", url, headers, mediaType, body, binary);
-		return r;
+		return postPlain(HttpUrl.get(url), toHeaders(headers), null, RequestBodies.of(mediaType, body, binary),
+				response -> response.body().string());
+	}
+
+	<V> V postPlain(final HttpUrl url, final Headers headers, final KeycloakContext kcc, final RequestBody body,
+			final ResponseReader<V> reader) throws IOException {
+		return call("POST", url, headers, kcc, body, reader);
 	}
 
 	String putPlain(final String url, final StringParam headers, final String mediaType, final String body,
 			final byte[] binary) throws IOException {
-		String r = call("PUT", url, headers, mediaType, body, binary);
-		return r;
+		return putPlain(HttpUrl.get(url), toHeaders(headers), null, RequestBodies.of(mediaType, body, binary),
+				response -> response.body().string());
 	}
 
-	private String call(final String method, final String url, final StringParam headers, final String mediaType,
-			final String body, final byte[] binary) throws IOException {
-		Call call = getCall(method, url, headers, mediaType, body, binary);
-		Response response = call.execute();
+	<V> V putPlain(final HttpUrl url, final Headers headers, final KeycloakContext kcc, final RequestBody body,
+			final ResponseReader<V> reader) throws IOException {
+		return call("PUT", url, headers, kcc, body, reader);
+	}
+
+	<V> CompletableFuture<V> getAsync(final HttpUrl url, final Headers headers, final KeycloakContext kcc,
+			final ResponseReader<V> reader) {
+		if (!(reader instanceof TypedResponseReader))
+			return callAsync("GET", url, headers, kcc, null, reader);
+		GetKey key = new GetKey(url, headers, kcc, ((TypedResponseReader<V>) reader).typeKey);
+		if (config.isCoalesceRequests())
+			return coalesceAsync(key, () -> getAsyncUncoalesced(key, reader));
+		return getAsyncUncoalesced(key, reader);
+	}
 
-		if (!response.isSuccessful()) {
-			response.body().close();
-			throw new RestClientException(String.format("HTTP call to url %s failed with %s.", url, response.code()));
+	private <V> CompletableFuture<V> getAsyncUncoalesced(final GetKey key, final ResponseReader<V> reader) {
+		if (objectCache != null) {
+			RevalidatingReader<V> revalidating = new RevalidatingReader<>(key, (TypedResponseReader<V>) reader);
+			return callAsync("GET", key.url, revalidating.conditional(key.headers), key.keycloakContext, null,
+					revalidating);
 		}
+		return callAsync("GET", key.url, key.headers, key.keycloakContext, null, reader);
+	}
 
-		log.debug("HTTP call to url [{}] succeeded with [{}]", url, response.code());
-		String r = response.body().string();
-		response.body().close();
-		return r == null ? "" : r;
+	<V> CompletableFuture<V> delAsync(final HttpUrl url, final Headers headers, final KeycloakContext kcc,
+			final ResponseReader<V> reader) {
+		return callAsync("DEL", url, headers, kcc, null, reader);
 	}
 
-	private Call getCall(final String method, final String url, final StringParam headers, final String mediaType,
-			final String body, final byte[] binary) {
+	<V> CompletableFuture<V> postAsync(final HttpUrl url, final Headers headers, final KeycloakContext kcc,
+			final RequestBody body, final ResponseReader<V> reader) {
+		return callAsync("POST", url, headers, kcc, body, reader);
+	}
 
-		String mt = mediaType;
-		if (binary != null && mt == null)
-			mt = "application/octet-stream";
-		RequestBody requestBody;
-		if (binary == null) {
-			if (body == null)
-				requestBody = RequestBody.create("", null);
+	<V> CompletableFuture<V> putAsync(final HttpUrl url, final Headers headers, final KeycloakContext kcc,
+			final RequestBody body, final ResponseReader<V> reader) {
+		return callAsync("PUT", url, headers, kcc, body, reader);
+	}
+
+	private <V> V call(final String method, final HttpUrl url, final Headers headers, final KeycloakContext kcc,
+			final RequestBody body, final ResponseReader<V> reader) throws IOException {
+		Permit permit = checkCircuit(url);
+		Call call = null;
+		Response response;
+		try {
+			call = getCall(method, url, headers, kcc, body);
+			response = call.execute();
+		} catch (InterceptorException e) {
+			release(permit);
+			throw e.getCause();
+		} catch (IOException e) {
+			if (call.isCanceled())
+				release(permit);
 			else
-				requestBody = RequestBody.create(body, MediaType.parse(mt));
-		} else
-			requestBody = RequestBody.create(binary, MediaType.parse(mt));
+				recordFailure(permit);
+			throw e;
+		} catch (RuntimeException | Error e) {
+			// Like a RuntimeException of an interceptor. The host didn't answer.
+			release(permit);
+			throw e;
+		}
+		try {
+			recordOutcome(permit, response.code());
+			if (!response.isSuccessful() && !isNotModified(response, reader))
+				throw new HttpStatusException(
+						String.format("HTTP call to url %s failed with %s.", url, response.code()), response.code());
+
+			log.debug("HTTP call to url [{}] succeeded with [{}]", url, response.code());
+			V result = read(url, reader, response);
+			if (!(reader instanceof StreamingResponseReader))
+				response.close();
+			return result;
+		} catch (IOException | RuntimeException e) {
+			response.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Enqueues the call to the dispatcher of the underlying {@link OkHttpClient}
+	 * instead of blocking the calling thread.
+	 * <p>
+	 * The response is read on the thread of the dispatcher. Cancelling the
+	 * returned future cancels the underlying {@link Call} and frees its permit of
+	 * the circuit-breaker.
+	 */
+	private <V> CompletableFuture<V> callAsync(final String method, final HttpUrl url, final Headers headers,
+			final KeycloakContext kcc, final RequestBody body, final ResponseReader<V> reader) {
+		Permit permit;
+		Call call;
+		try {
+			permit = checkCircuit(url);
+		} catch (CircuitOpenException e) {
+			return CompletableFuture.failedFuture(e);
+		}
+		try {
+			call = getCall(method, url, headers, kcc, body);
+		} catch (RuntimeException e) {
+			release(permit);
+			return CompletableFuture.failedFuture(e);
+		}
+		CompletableFuture<V> future = new CompletableFuture<>();
+		future.whenComplete((r, e) -> {
+			if (future.isCancelled()) {
+				call.cancel();
+				release(permit);
+			}
+		});
+		call.enqueue(new Callback() {
+			@Override
+			public void onFailure(final Call call, final IOException e) {
+				if (e instanceof InterceptorException) {
+					release(permit);
+					future.completeExceptionally(e.getCause());
+					return;
+				}
+				// OkHttp reports RuntimeExceptions of interceptors as cancelled calls.
+				if (call.isCanceled())
+					release(permit);
+				else
+					recordFailure(permit);
+				future.completeExceptionally(e);
+			}
+
+			@Override
+			public void onResponse(final Call call, final Response response) {
+				try (response) {
+					recordOutcome(permit, response.code());
+					if (!response.isSuccessful() && !isNotModified(response, reader)) {
+						future.completeExceptionally(new HttpStatusException(
+								String.format("HTTP call to url %s failed with %s.", url, response.code()),
+								response.code()));
+						return;
+					}
+
+					log.debug("HTTP call to url [{}] succeeded with [{}]", url, response.code());
+					future.complete(read(url, reader, response));
+				} catch (IOException | RuntimeException e) {
+					future.completeExceptionally(e);
+				}
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Identifies GETs that may share one call or one cached result: same URL
+	 * (including the parameters), same headers (including the credentials), same
+	 * token-context and same return-type.
+	 */
+	@Value
+	static class GetKey {
+		HttpUrl url;
+		Headers headers;
+		KeycloakContext keycloakContext;
+		String typeKey;
+	}
+
+	@FunctionalInterface
+	private interface IOSupplier<V> {
+		V get() throws IOException;
+	}
+
+	/**
+	 * A coalesced call in flight and the number of callers waiting for it. When
+	 * the last of them is gone, the call is cancelled.
+	 */
+	private static class Flight {
+		private final CompletableFuture<Object> result = new CompletableFuture<>();
+		private final AtomicInteger waiters = new AtomicInteger(1);
+
+		/**
+		 * Returns false, if the flight was abandoned by all of its callers already.
+		 */
+		private boolean join() {
+			for (;;) {
+				int n = waiters.get();
+				if (n == 0)
+					return false;
+				if (waiters.compareAndSet(n, n + 1))
+					return true;
+			}
+		}
+
+		private void leave() {
+			if (waiters.decrementAndGet() == 0)
+				result.cancel(true);
+		}
+
+		@SuppressWarnings("unchecked")
+		private <V> CompletableFuture<V> waiter() {
+			CompletableFuture<V> waiter = result.thenApply(r -> (V) r);
+			waiter.whenComplete((r, e) -> {
+				if (waiter.isCancelled())
+					leave();
+			});
+			return waiter;
+		}
+	}
+
+	/**
+	 * Registers a new flight for the key or joins the one in flight.
+	 *
+	 * @return the flight joined or null, if the given one was registered
+	 */
+	private Flight board(final GetKey key, final Flight mine) {
+		for (;;) {
+			Flight running = inFlight.putIfAbsent(key, mine);
+			if (running == null)
+				return null;
+			if (running.join()) {
+				log.debug("Joining the call to url [{}] in flight.", key.url);
+				return running;
+			}
+			inFlight.remove(key, running);
+		}
+	}
+
+	/**
+	 * Makes the call unless an identical one is in flight already, in which case
+	 * this waits for its result instead.
+	 */
+	@SuppressWarnings("unchecked")
+	private <V> V coalesce(final GetKey key, final IOSupplier<V> call) throws IOException {
+		Flight mine = new Flight();
+		Flight running = board(key, mine);
+		if (running != null) {
+			try {
+				return (V) running.result.join();
+			} catch (CompletionException e) {
+				Throwable cause = unwrap(e);
+				if (cause instanceof IOException)
+					throw (IOException) cause;
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				throw e;
+			} finally {
+				running.leave();
+			}
+		}
+		try {
+			V result = call.get();
+			mine.result.complete(result);
+			return result;
+		} catch (IOException | RuntimeException e) {
+			mine.result.completeExceptionally(e);
+			throw e;
+		} finally {
+			inFlight.remove(key, mine);
+		}
+	}
+
+	/**
+	 * Asynchronous version of {@link #coalesce(GetKey, IOSupplier)}.
+	 * <p>
+	 * Every caller gets its own dependent future, so cancelling it doesn't cancel
+	 * the shared call as long as other callers are still waiting for it. Once all
+	 * of them cancelled, the shared call is cancelled as well.
+	 */
+	private <V> CompletableFuture<V> coalesceAsync(final GetKey key,
+			final Supplier<CompletableFuture<V>> call) {
+		Flight mine = new Flight();
+		Flight running = board(key, mine);
+		if (running != null)
+			return running.waiter();
+		mine.result.whenComplete((r, e) -> inFlight.remove(key, mine));
+		try {
+			CompletableFuture<V> shared = call.get();
+			mine.result.whenComplete((r, e) -> {
+				if (mine.result.isCancelled())
+					shared.cancel(true);
+			});
+			shared.whenComplete((r, e) -> {
+				if (e != null)
+					mine.result.completeExceptionally(unwrap(e));
+				else
+					mine.result.complete(r);
+			});
+		} catch (RuntimeException e) {
+			mine.result.completeExceptionally(e);
+		}
+		return mine.waiter();
+	}
+
+	private <V> V read(final HttpUrl url, final ResponseReader<V> reader, final Response response)
+			throws IOException {
+		if (metrics == null)
+			return reader.read(response);
+		long start = System.nanoTime();
+		try {
+			return reader.read(response);
+		} finally {
+			metrics.recordPhase(url.host() + ":" + url.port(), Phase.DESERIALIZATION, System.nanoTime() - start);
+		}
+	}
+
+	private void recordAttempts(final int attempts, final boolean success) {
+		if (metrics != null)
+			metrics.recordAttempts(attempts, success);
+	}
+
+	private static boolean isNotModified(final Response response, final ResponseReader<?> reader) {
+		return response.code() == 304 && reader instanceof RevalidatingReader;
+	}
+
+	/**
+	 * Returns the permit of the circuit-breaker for a call to the given URL or
+	 * null, if there is no circuit-breaker.
+	 */
+	private Permit checkCircuit(final HttpUrl url) {
+		if (circuitBreaker == null)
+			return null;
+		Permit permit = circuitBreaker.acquire(url);
+		if (permit == null)
+			throw new CircuitOpenException(String.format("HTTP call to url %s not made. The circuit is open.", url));
+		return permit;
+	}
+
+	private static void recordOutcome(final Permit permit, final int code) {
+		if (permit == null)
+			return;
+		if (code >= 500)
+			permit.onFailure();
+		else
+			permit.onSuccess();
+	}
+
+	private static void recordFailure(final Permit permit) {
+		if (permit != null)
+			permit.onFailure();
+	}
+
+	private static void release(final Permit permit) {
+		if (permit != null)
+			permit.release();
+	}
+
+	private boolean withdrawRetry() {
+		if (retryBudget == null || retryBudget.tryRetry())
+			return true;
+		log.debug("Retry budget exhausted. Giving up.");
+		return false;
+	}
+
+	private Call getCall(final String method, final HttpUrl url, final Headers headers, final KeycloakContext kcc,
+			final RequestBody body) {
 
 		Builder request = new Request.Builder();
 		if (method.equalsIgnoreCase("POST") || method.equalsIgnoreCase("PUT"))
-			request.method(method, requestBody);
-
+			request.method(method, body == null ? RequestBodies.of(null, null, null) : body);
+		else if (method.equalsIgnoreCase("DEL"))
+			request.delete(body);
 		if (headers != null)
-			request.headers(Headers.of(headers.getParameters()));
+			request.headers(headers);
+		if (kcc != null)
+			request.tag(KeycloakContext.class, kcc);
 
 		return client.newCall(request.url(url).build());
 	}
 
+	private static Headers toHeaders(final StringParam headers) {
+		if (headers == null || headers.getParameters() == null)
+			return null;
+		return Headers.of(headers.getParameters());
+	}
+
 	public <T> GetBuilder<T> get(final Class<?> type) {
 		return new GetBuilder<>(this, type);
 	}
@@ -156,11 +792,272 @@ public class RestClient {
 		return new PutBuilder<>(this, type);
 	}
 
+	public <T> GetKeycloakBuilder<T> get(final Class<?> type, final KeycloakContext kcc) {
+		return kcc.get(this, type);
+	}
+
+	public <T> DelKeycloakBuilder<T> del(final Class<?> type, final KeycloakContext kcc) {
+		return kcc.del(this, type);
+	}
+
+	public <T> PostKeycloakBuilder<T> post(final Class<?> type, final KeycloakContext kcc) {
+		return kcc.post(this, type);
+	}
+
+	public <T> PutKeycloakBuilder<T> put(final Class<?> type, final KeycloakContext kcc) {
+		return kcc.put(this, type);
+	}
+
+	/**
+	 * Executes all the builders with the {@link BulkOptions#DEFAULT} options.
+	 *
+	 * @param <T>      the return type of the builders
+	 * @param builders the builders to execute
+	 * @throws RestClientException if a call failed
+	 * @return the results in the order of the builders
+	 */
+	public <T> List<T> executeAll(final Collection<? extends BaseBuilder<T, ?>> builders) {
+		return executeAll(builders, BulkOptions.DEFAULT);
+	}
+
+	/**
+	 * Executes all the builders asynchronously (see
+	 * {@link BaseBuilder#executeAsync()}) and waits for their results.
+	 *
+	 * @param <T>      the return type of the builders
+	 * @param builders the builders to execute
+	 * @param options  the number of calls in flight, the deadline and if to fail
+	 *                 fast
+	 * @throws RestClientException if a call failed or the deadline passed
+	 * @return the results in the order of the builders
+	 */
+	public <T> List<T> executeAll(final Collection<? extends BaseBuilder<T, ?>> builders,
+			final BulkOptions options) {
+		try {
+			return executeAllAsync(builders, options).join();
+		} catch (CompletionException e) {
+			Throwable cause = unwrap(e);
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new RestClientException("Executing the calls didn't work out.", cause);
+		}
+	}
+
+	/**
+	 * Asynchronous version of {@link #executeAll(Collection, BulkOptions)}.
+	 *
+	 * @param <T>      the return type of the builders
+	 * @param builders the builders to execute
+	 * @param options  the number of calls in flight, the deadline and if to fail
+	 *                 fast
+	 * @return a future of the results in the order of the builders. It completes
+	 *         exceptionally with the (first) failure of a call.
+	 */
+	public <T> CompletableFuture<List<T>> executeAllAsync(final Collection<? extends BaseBuilder<T, ?>> builders,
+			final BulkOptions options) {
+		CompletableFuture<List<Outcome<T>>> outcomes = scatterGather(builders, options);
+		CompletableFuture<List<T>> result = outcomes.thenApply(list -> {
+			Throwable failure = null;
+			List<T> values = new ArrayList<>(list.size());
+			for (Outcome<T> outcome : list) {
+				// Report the cause, not the calls that were cancelled because of it.
+				if (!outcome.isSuccess() && (failure == null || failure instanceof CancellationException))
+					failure = outcome.getFailure();
+				values.add(outcome.getValue());
+			}
+			if (failure != null)
+				throw new CompletionException(failure);
+			return values;
+		});
+		result.whenComplete((r, e) -> {
+			if (result.isCancelled())
+				outcomes.cancel(true);
+		});
+		return result;
+	}
+
+	/**
+	 * Executes all the builders asynchronously (see
+	 * {@link BaseBuilder#executeAsync()}) with at most
+	 * {@link BulkOptions#getMaxInFlight()} calls in flight and gathers the outcome
+	 * of every single call.
+	 * <p>
+	 * When failing fast, the first failure cancels the calls in flight (and their
+	 * OkHttp-calls) and the ones not started yet. When the deadline passes, all
+	 * the calls that aren't done are cancelled. Cancelling the returned future
+	 * cancels all the calls.
+	 *
+	 * @param <T>      the return type of the builders
+	 * @param builders the builders to execute
+	 * @param options  the number of calls in flight, the deadline and if to fail
+	 *                 fast
+	 * @return a future of the outcomes in the order of the builders. It doesn't
+	 *         complete exceptionally when calls fail.
+	 */
+	public <T> CompletableFuture<List<Outcome<T>>> scatterGather(
+			final Collection<? extends BaseBuilder<T, ?>> builders, final BulkOptions options) {
+		return new BulkExecution<T>(new ArrayList<>(builders), options).run(RETRY_SCHEDULER);
+	}
+
+	/**
+	 * Makes the call and, if it didn't succeed after the given delay, makes it a
+	 * second time (if the hedging-budget allows it). The first successful result
+	 * wins and the other call is cancelled.
+	 * <p>
+	 * Only use this for idempotent calls.
+	 *
+	 * @param <T>         the return value of the call
+	 * @param delayMillis the time to wait for the first call before sending the
+	 *                    hedge (like the 95th percentile of its latency)
+	 * @param call        starts the call
+	 * @return a future of the first successful result. Cancelling it cancels both
+	 *         calls.
+	 */
+	<T> CompletableFuture<T> hedge(final long delayMillis, final Supplier<CompletableFuture<T>> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		AtomicInteger pending = new AtomicInteger(1);
+		AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+		if (hedgingBudget != null)
+			hedgingBudget.onRequest();
+
+		CompletableFuture<T> primary = call.get();
+		primary.whenComplete((r, e) -> onHedgedResult(result, pending, r, e));
+		ScheduledFuture<?> timer = HEDGE_SCHEDULER.schedule(() -> {
+			if (result.isDone())
+				return;
+			if (hedgingBudget != null && !hedgingBudget.tryRetry()) {
+				log.debug("Hedging budget exhausted. Not hedging.");
+				return;
+			}
+			pending.incrementAndGet();
+			if (result.isDone()) {
+				pending.decrementAndGet();
+				return;
+			}
+			log.debug("Call not done after [{}]ms. Hedging.", delayMillis);
+			CompletableFuture<T> h;
+			try {
+				h = call.get();
+			} catch (RuntimeException e) {
+				h = CompletableFuture.failedFuture(e);
+			}
+			hedge.set(h);
+			// The result may have completed while the hedge was started.
+			if (result.isDone())
+				h.cancel(true);
+			h.whenComplete((r, e) -> onHedgedResult(result, pending, r, e));
+		}, delayMillis, TimeUnit.MILLISECONDS);
+
+		result.whenComplete((r, e) -> {
+			timer.cancel(false);
+			primary.cancel(true);
+			CompletableFuture<T> h = hedge.get();
+			if (h != null)
+				h.cancel(true);
+		});
+		return result;
+	}
+
+	private static <T> void onHedgedResult(final CompletableFuture<T> result, final AtomicInteger pending,
+			final T r, final Throwable e) {
+		if (e == null && r != null) {
+			result.complete(r);
+			return;
+		}
+		// Wait for the other call unless this was the last one.
+		if (pending.decrementAndGet() > 0)
+			return;
+		if (e == null)
+			result.complete(r);
+		else
+			result.completeExceptionally(unwrap(e));
+	}
+
 	@FunctionalInterface
 	public interface HttpGetCall<T> {
 		T execute(RestClient client) throws IOException;
 	}
 
+	/**
+	 * Reads a successful response.
+	 * <p>
+	 * The response is closed by the client after this method returns, so
+	 * implementations should consume the body completely (but don't have to close
+	 * it).
+	 */
+	@FunctionalInterface
+	public interface ResponseReader<V> {
+		V read(Response response) throws IOException;
+	}
+
+	/**
+	 * A {@link ResponseReader} that takes over the response.
+	 * <p>
+	 * The client doesn't close the response after reading it (unless reading
+	 * failed), so the returned value is responsible for closing it. Only supported
+	 * by blocking calls.
+	 */
+	@FunctionalInterface
+	public interface StreamingResponseReader<V> extends ResponseReader<V> {
+	}
+
+	/**
+	 * A {@link ResponseReader} that deserializes to a known type, which makes its
+	 * results cacheable.
+	 */
+	@RequiredArgsConstructor
+	static class TypedResponseReader<V> implements ResponseReader<V> {
+		private final String typeKey;
+		private final ResponseReader<V> delegate;
+
+		@Override
+		public V read(final Response response) throws IOException {
+			return delegate.read(response);
+		}
+	}
+
+	/**
+	 * Revalidates a response of the {@link ObjectCache} and returns the cached
+	 * object on {@code 304 Not Modified}.
+	 */
+	private class RevalidatingReader<V> implements ResponseReader<V> {
+		private final GetKey key;
+		private final TypedResponseReader<V> delegate;
+		private final ObjectCache.Entry cached;
+
+		RevalidatingReader(final GetKey key, final TypedResponseReader<V> delegate) {
+			this.key = key;
+			this.delegate = delegate;
+			cached = objectCache.get(key);
+		}
+
+		Headers conditional(final Headers headers) {
+			return cached == null ? headers : cached.conditional(headers);
+		}
+
+		@SuppressWarnings("unchecked")
+		@Override
+		public V read(final Response response) throws IOException {
+			if (response.code() == 304) {
+				if (cached == null)
+					throw new HttpStatusException(
+							String.format("HTTP call to url %s returned %s without a cached value.",
+									response.request().url(), response.code()),
+							response.code());
+				log.debug("HTTP call to url [{}] not modified. Using the cached value.", response.request().url());
+				return (V) cached.getValue();
+			}
+			V value = delegate.read(response);
+			objectCache.put(key, response.header("ETag"), response.header("Last-Modified"), value);
+			return value;
+		}
+	}
+
+	@FunctionalInterface
+	public interface HttpAsyncCall<T> {
+		CompletableFuture<T> execute(RestClient client);
+	}
+
 	<T> T once(final HttpGetCall<T> call) {
 		try {
 			return call.execute(this);
@@ -172,29 +1069,29 @@ public class RestClient {
 	/**
 	 * Makes an HTTP-call and retries it if it fails.
 	 * <p>
-	 * Calls {@link #retry(int, double, long, HttpGetCall)} with parameters (10, 2D,
-	 * 500L, call).
+	 * Calls {@link #retry(RetryPolicy, HttpGetCall)} with
+	 * {@link RetryPolicy#SHORT}.
 	 *
 	 * @param <T>  the return value of the HTTP-call
 	 * @param call the HTTP-call to make
 	 * @return the return type of the HTTP-call
 	 */
 	<T> T retryShort(final HttpGetCall<T> call) {
-		return retry(2, 2D, 500L, call);
+		return retry(RetryPolicy.SHORT, call);
 	}
 
 	/**
 	 * Makes an HTTP-call and retries it if it fails.
 	 * <p>
-	 * Calls {@link #retry(int, double, long, HttpGetCall)} with parameters (40, 2D,
-	 * 5000L, call).
+	 * Calls {@link #retry(RetryPolicy, HttpGetCall)} with
+	 * {@link RetryPolicy#ENDURING}.
 	 *
 	 * @param <T>  the return value of the HTTP-call
 	 * @param call the HTTP-call to make
 	 * @return the return type of the HTTP-call
 	 */
 	<T> T retryEnduring(final HttpGetCall<T> call) {
-		return retry(3, 2D, 5000L, call);
+		return retry(RetryPolicy.ENDURING, call);
 	}
 
 	/**
@@ -214,34 +1111,156 @@ public class RestClient {
 	 */
 	<T> T retry(final int retries, final double retryWaitExpBase, final long retryWaitCapAt,
 			final HttpGetCall<T> call) {
-		int ret = retries;
-		do
+		return retry(RetryPolicy.builder()
+				.maxAttempts(retries)
+				.baseDelayMillis((long) retryWaitExpBase)
+				.multiplier(retryWaitExpBase)
+				.capMillis(retryWaitCapAt)
+				.jitter(RetryPolicy.Jitter.ADDITIVE)
+				.build(), call);
+	}
+
+	/**
+	 * Makes an HTTP-call and retries it according to the given policy if it fails.
+	 * <p>
+	 * This blocks the calling thread for the calls and the waits in between. Use
+	 * {@link #retryAsync(RetryPolicy, HttpAsyncCall)} to schedule the retries
+	 * without blocking a thread.
+	 *
+	 * @param <T>    the return value of the HTTP-call
+	 * @param policy the policy that decides if and when to retry
+	 * @param call   the HTTP-call to make
+	 * @return the return type of the HTTP-call or null, if it failed with an
+	 *         {@link IOException}
+	 */
+	<T> T retry(final RetryPolicy policy, final HttpGetCall<T> call) {
+		if (retryBudget != null)
+			retryBudget.onRequest();
+		long delay = 0L;
+		for (int attempt = 1;; attempt++) {
+			Throwable failure = null;
 			try {
 				T result = call.execute(this);
-				if (result != null)
+				if (result != null) {
+					recordAttempts(attempt, true);
 					return result;
-				else
-					throw new IOException("Call returned error.");
-			} catch (IOException e) {
-				ret--;
-				int retry = retries - ret;
-				log.debug("Call threw exception [{}] on retry [{}].", e.getMessage(), retry);
-				long sleepTime = (long) Math.pow(retryWaitExpBase, retry);
-				if (sleepTime > retryWaitCapAt)
-					sleepTime = retryWaitCapAt;
-				sleepTime += getRandomBetween(0D, 20D);
+				}
+			} catch (IOException | RuntimeException e) {
+				failure = e;
+			}
+			log.debug("Call threw exception [{}] on retry [{}].",
+					failure == null ? "Call returned error." : failure.getMessage(), attempt);
+			if (attempt >= policy.getMaxAttempts() || !policy.isRetriable(failure) || !withdrawRetry()) {
+				recordAttempts(attempt, false);
+				return giveUp(failure);
+			}
+
+			delay = policy.delayMillis(attempt, delay);
+			try {
+				TimeUnit.MILLISECONDS.sleep(delay);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+	}
+
+	/**
+	 * Makes an asynchronous HTTP-call once.
+	 * <p>
+	 * Just like {@link #once(HttpGetCall)} the future completes with null if the
+	 * call failed with an {@link IOException}.
+	 *
+	 * @param <T>  the return value of the HTTP-call
+	 * @param call the HTTP-call to make
+	 * @return a future of the return type of the HTTP-call
+	 */
+	<T> CompletableFuture<T> onceAsync(final HttpAsyncCall<T> call) {
+		return retryAsync(RetryPolicy.ONCE, call);
+	}
+
+	/**
+	 * Asynchronous version of {@link #retry(RetryPolicy, HttpGetCall)}.
+	 * <p>
+	 * The wait in between retries is scheduled on a shared scheduler instead of
+	 * blocking a thread. Cancelling the returned future cancels the call that is
+	 * currently in flight and prevents further retries.
+	 *
+	 * @param <T>    the return value of the HTTP-call
+	 * @param policy the policy that decides if and when to retry
+	 * @param call   the HTTP-call to make
+	 * @return a future of the return type of the HTTP-call. If the last attempt
+	 *         failed with an {@link IOException}, it completes exceptionally with
+	 *         a {@link RestClientException} caused by it.
+	 */
+	<T> CompletableFuture<T> retryAsync(final RetryPolicy policy, final HttpAsyncCall<T> call) {
+		CompletableFuture<T> result = new CompletableFuture<>();
+		if (retryBudget != null)
+			retryBudget.onRequest();
+		attemptAsync(1, 0L, policy, call, result);
+		return result;
+	}
+
+	private <T> void attemptAsync(final int attempt, final long previousDelay, final RetryPolicy policy,
+			final HttpAsyncCall<T> call, final CompletableFuture<T> result) {
+		if (result.isDone())
+			return;
+
+		CompletableFuture<T> current;
+		try {
+			current = call.execute(this);
+		} catch (RuntimeException e) {
+			result.completeExceptionally(e);
+			return;
+		}
+		result.whenComplete((r, e) -> {
+			if (result.isCancelled())
+				current.cancel(true);
+		});
+		current.whenComplete((r, e) -> {
+			if (e == null && r != null) {
+				recordAttempts(attempt, true);
+				result.complete(r);
+				return;
+			}
+			Throwable failure = unwrap(e);
+			log.debug("Call threw exception [{}] on retry [{}].",
+					failure == null ? "Call returned error." : failure.getMessage(), attempt);
+			if (attempt >= policy.getMaxAttempts() || !policy.isRetriable(failure) || !withdrawRetry()) {
+				recordAttempts(attempt, false);
+				if (failure instanceof IOException) {
+					// Unlike a blocking call, which returns null, the future tells what went wrong.
+					result.completeExceptionally(new RestClientException(
+							String.format("The call failed after [%d] attempt(s).", attempt), failure));
+					return;
+				}
 				try {
-					Thread.sleep(sleepTime);
-				} catch (InterruptedException e1) {
-					Thread.currentThread().interrupt();
-					return null;
+					result.complete(giveUp(failure));
+				} catch (RuntimeException ex) {
+					result.completeExceptionally(ex);
 				}
+				return;
 			}
-		while (ret > 0);
+			long delay = policy.delayMillis(attempt, previousDelay);
+			RETRY_SCHEDULER.schedule(() -> attemptAsync(attempt + 1, delay, policy, call, result), delay,
+					TimeUnit.MILLISECONDS);
+		});
+	}
+
+	/**
+	 * Blocking calls that failed with an {@link IOException} (or returned null)
+	 * return null after the last attempt; everything else is thrown.
+	 */
+	private static <T> T giveUp(final Throwable failure) {
+		if (failure instanceof RuntimeException)
+			throw (RuntimeException) failure;
 		return null;
 	}
 
-	private double getRandomBetween(final Double min, final Double max) {
-		return min + random.nextDouble() * (max - min);
+	static Throwable unwrap(final Throwable e) {
+		Throwable t = e;
+		while ((t instanceof CompletionException || t instanceof ExecutionException) && t.getCause() != null)
+			t = t.getCause();
+		return t;
 	}
 }
@@ -0,0 +1,166 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.File;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import info.unterrainer.commons.restclient.metrics.MetricsRecorder;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+import okhttp3.Protocol;
+
+/**
+ * The settings of the underlying HTTP-client of a {@link RestClient}.
+ * <p>
+ * The defaults are the ones of OkHttp except for the timeouts (10s each).
+ * {@code maxRequestsPerHost} is the limit of concurrent calls to a single host
+ * and has to be raised for heavy fan-out to a single backend (the default is
+ * 5).
+ * <p>
+ * Clients with the same pool-settings share their connections unless they are
+ * {@code isolated}. Every client has its own limits of concurrent calls unless
+ * it opts into {@code sharedDispatcher}.
+ */
+@Value
+@Builder(toBuilder = true)
+public class RestClientConfig {
+
+	public static final RestClientConfig DEFAULT = RestClientConfig.builder().build();
+
+	@Builder.Default
+	long connectTimeoutMillis = 10000L;
+	@Builder.Default
+	long readTimeoutMillis = 10000L;
+	@Builder.Default
+	long writeTimeoutMillis = 10000L;
+	/**
+	 * The timeout for the whole call including redirects and retries by OkHttp. 0
+	 * means no timeout.
+	 */
+	@Builder.Default
+	long callTimeoutMillis = 0L;
+
+	/**
+	 * The maximum number of idle connections kept in the pool.
+	 */
+	@Builder.Default
+	int maxIdleConnections = 5;
+	/**
+	 * How long an idle connection is kept in the pool.
+	 */
+	@Builder.Default
+	long keepAliveMillis = 300000L;
+	/**
+	 * If true, the client gets its own connection-pool instead of sharing it with
+	 * the other clients with the same settings.
+	 */
+	boolean isolated;
+	/**
+	 * If true, all the clients with the same limits share one dispatcher, so
+	 * {@code maxRequests} and {@code maxRequestsPerHost} hold across them
+	 * (process-wide) instead of for every single client. Ignored if
+	 * {@code isolated}.
+	 */
+	boolean sharedDispatcher;
+	/**
+	 * The maximum number of concurrent asynchronous calls.
+	 */
+	@Builder.Default
+	int maxRequests = 64;
+	/**
+	 * The maximum number of concurrent asynchronous calls to a single host.
+	 */
+	@Builder.Default
+	int maxRequestsPerHost = 5;
+	/**
+	 * If true, asynchronous calls run on virtual threads (Java 21+) instead of the
+	 * shared pool of platform threads. Raise {@code maxRequests} and
+	 * {@code maxRequestsPerHost} to make use of it. On older JVMs this falls back
+	 * to platform threads.
+	 */
+	boolean virtualThreads;
+
+	/**
+	 * If set, JSON response-bodies are streamed into this mapper and JSON
+	 * request-bodies (see {@link BaseBodyBuilder#jsonBody(Object)}) are serialized
+	 * directly into the connection, without building a string first. Configure it
+	 * like the {@link info.unterrainer.commons.serialization.jsonmapper.JsonMapper}
+	 * of the client. If null, all JSON goes through the JsonMapper of the client.
+	 */
+	ObjectMapper objectMapper;
+
+	/**
+	 * The protocols to negotiate via ALPN. Empty means HTTP/2 and HTTP/1.1.
+	 */
+	@Singular
+	List<Protocol> protocols;
+	/**
+	 * If true, cleartext HTTP/2 (h2c) is spoken without negotiation. Only works
+	 * with servers that support it.
+	 */
+	boolean h2PriorKnowledge;
+	@Builder.Default
+	boolean followRedirects = true;
+
+	/**
+	 * The compression-level of request-bodies (see {@link BaseBuilder#gzip()}).
+	 */
+	@Builder.Default
+	int compressionLevel = Deflater.DEFAULT_COMPRESSION;
+	/**
+	 * Request-bodies smaller than this are sent uncompressed.
+	 */
+	@Builder.Default
+	long minCompressSize = GzipInterceptor.DEFAULT_MIN_COMPRESS_SIZE;
+
+	/**
+	 * If set, responses are cached on disk in this directory according to their
+	 * cache-headers (see {@link okhttp3.Cache}). Clients with the same directory
+	 * share the cache.
+	 */
+	File cacheDirectory;
+	/**
+	 * The maximum size of the disk-cache.
+	 */
+	@Builder.Default
+	long cacheMaxBytes = 50L * 1024L * 1024L;
+	/**
+	 * If greater than 0, the deserialized bodies of up to this many
+	 * GET-responses with an {@code ETag} or {@code Last-Modified} header are kept
+	 * in memory. Further calls to the same URL (with the same headers,
+	 * token-context and return-type) are revalidated and a
+	 * {@code 304 Not Modified} returns the cached object without parsing
+	 * anything. The cached objects are shared, so don't modify them.
+	 */
+	int objectCacheSize;
+
+	/**
+	 * If true, identical GETs (same URL, parameters, headers, token-context and
+	 * return-type) that are made while one of them is in flight share its call
+	 * and its deserialized result instead of making their own. The shared result
+	 * must not be modified.
+	 */
+	boolean coalesceRequests;
+
+	/**
+	 * If set, the client reports the durations of the phases of its calls, the
+	 * number of retries, the utilization of its connection-pool and the
+	 * token-refreshes to it.
+	 */
+	MetricsRecorder metrics;
+
+	/**
+	 * URLs to open connections to when the client is created, so that the first
+	 * calls don't have to wait for the handshakes.
+	 */
+	@Singular
+	List<String> warmUpUrls;
+	/**
+	 * The number of connections to open to each of the {@code warmUpUrls}.
+	 */
+	@Builder.Default
+	int warmUpConnections = 1;
+}
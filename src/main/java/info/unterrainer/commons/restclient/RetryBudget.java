@@ -0,0 +1,51 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import lombok.Builder;
+
+/**
+ * Limits the number of retries to a fraction of the number of calls.
+ * <p>
+ * Every call deposits {@code ratio} tokens (up to {@code maxRetries}), every
+ * retry withdraws one. A retry is only allowed if there is a token left. The
+ * budget starts with {@code minRetries} tokens, so that there may be some
+ * retries even if there were few calls so far.
+ */
+public class RetryBudget {
+
+	private static final long SCALE = 1000L;
+
+	private final long deposit;
+	private final long max;
+	private final AtomicLong balance;
+
+	@Builder
+	private RetryBudget(final Double ratio, final Integer minRetries, final Integer maxRetries) {
+		deposit = (long) ((ratio == null ? 0.1D : ratio) * SCALE);
+		max = (maxRetries == null ? 100L : maxRetries) * SCALE;
+		balance = new AtomicLong(Math.min(max, (minRetries == null ? 10L : minRetries) * SCALE));
+	}
+
+	/**
+	 * Registers a call (not a retry).
+	 */
+	public void onRequest() {
+		balance.updateAndGet(b -> Math.min(max, b + deposit));
+	}
+
+	/**
+	 * Tries to withdraw a retry from the budget.
+	 *
+	 * @return true, if the retry may go out
+	 */
+	public boolean tryRetry() {
+		long b;
+		do {
+			b = balance.get();
+			if (b < SCALE)
+				return false;
+		} while (!balance.compareAndSet(b, b - SCALE));
+		return true;
+	}
+}
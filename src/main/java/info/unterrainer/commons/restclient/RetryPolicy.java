@@ -0,0 +1,130 @@
+package info.unterrainer.commons.restclient;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.ThreadLocalRandom;
+
+import info.unterrainer.commons.restclient.exceptions.HttpStatusException;
+import lombok.Builder;
+import lombok.Singular;
+import lombok.Value;
+
+/**
+ * Describes how often and how fast a failed call is retried.
+ * <p>
+ * The wait before retry {@code n} is {@code baseDelayMillis * multiplier^(n-1)},
+ * capped at {@code capMillis} and randomized according to the {@link Jitter}.
+ * <br>
+ * A call that returns null counts as failed. By default every
+ * {@link IOException} is retriable and HTTP-errors are not; use
+ * {@code retryOn(...)} and {@code retryOnStatus(...)} to change that.
+ */
+@Value
+@Builder(toBuilder = true)
+public class RetryPolicy {
+
+	public enum Jitter {
+		/**
+		 * Wait exactly the exponential delay.
+		 */
+		NONE,
+		/**
+		 * Add a random number of milliseconds between 0 and 20 to the exponential
+		 * delay.
+		 */
+		ADDITIVE,
+		/**
+		 * Wait a random time between 0 and the exponential delay.
+		 */
+		FULL,
+		/**
+		 * Wait a random time between the base-delay and three times the previous
+		 * wait (capped).
+		 */
+		DECORRELATED
+	}
+
+	/**
+	 * Try once and give up.
+	 */
+	public static final RetryPolicy ONCE = RetryPolicy.builder().maxAttempts(1).build();
+	/**
+	 * Two attempts, waiting 2ms (plus up to 20ms) in between.
+	 */
+	public static final RetryPolicy SHORT = RetryPolicy.builder()
+			.maxAttempts(2)
+			.baseDelayMillis(2L)
+			.multiplier(2D)
+			.capMillis(500L)
+			.jitter(Jitter.ADDITIVE)
+			.build();
+	/**
+	 * Three attempts, waiting 2ms and 4ms (plus up to 20ms) in between.
+	 */
+	public static final RetryPolicy ENDURING = RetryPolicy.builder()
+			.maxAttempts(3)
+			.baseDelayMillis(2L)
+			.multiplier(2D)
+			.capMillis(5000L)
+			.jitter(Jitter.ADDITIVE)
+			.build();
+
+	@Builder.Default
+	int maxAttempts = 3;
+	@Builder.Default
+	long baseDelayMillis = 100L;
+	@Builder.Default
+	double multiplier = 2D;
+	@Builder.Default
+	long capMillis = 5000L;
+	@Builder.Default
+	Jitter jitter = Jitter.FULL;
+	@Singular("retryOnStatus")
+	Set<Integer> retryOnStatus;
+	@Singular("retryOn")
+	Set<Class<? extends Throwable>> retryOn;
+
+	/**
+	 * Decides if a failed attempt may be retried.
+	 *
+	 * @param e the cause of the failure or null, if the call returned null
+	 * @return true, if the attempt may be retried
+	 */
+	public boolean isRetriable(final Throwable e) {
+		if (e == null)
+			return true;
+		if (e instanceof HttpStatusException)
+			return retryOnStatus.contains(((HttpStatusException) e).getStatusCode());
+		if (retryOn.isEmpty())
+			return e instanceof IOException;
+		for (Class<? extends Throwable> c : retryOn)
+			if (c.isInstance(e))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Calculates the time to wait before the next attempt.
+	 *
+	 * @param attempt             the number of the attempt that just failed
+	 *                            (starting with 1)
+	 * @param previousDelayMillis the delay before the attempt that just failed (0
+	 *                            for the first one)
+	 * @return the number of milliseconds to wait
+	 */
+	public long delayMillis(final int attempt, final long previousDelayMillis) {
+		long delay = (long) Math.min(capMillis, baseDelayMillis * Math.pow(multiplier, attempt - 1));
+		ThreadLocalRandom random = ThreadLocalRandom.current();
+		switch (jitter) {
+			case ADDITIVE:
+				return delay + random.nextLong(21L);
+			case FULL:
+				return random.nextLong(delay + 1L);
+			case DECORRELATED:
+				long upper = Math.max(baseDelayMillis, previousDelayMillis * 3L);
+				return Math.min(capMillis, baseDelayMillis + random.nextLong(upper - baseDelayMillis + 1L));
+			default:
+				return delay;
+		}
+	}
+}
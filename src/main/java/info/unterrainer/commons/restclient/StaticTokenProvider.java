@@ -0,0 +1,18 @@
+package info.unterrainer.commons.restclient;
+
+import info.unterrainer.commons.restclient.jsons.TokenResponseJson;
+import lombok.RequiredArgsConstructor;
+
+/**
+ * Provides a fixed access-token that never expires (an API-key, for example).
+ */
+@RequiredArgsConstructor
+public class StaticTokenProvider implements TokenProvider {
+
+	private final String accessToken;
+
+	@Override
+	public TokenResponseJson fetch(final RestClient client) {
+		return TokenResponseJson.builder().accessToken(accessToken).tokenType("Bearer").build();
+	}
+}
@@ -0,0 +1,34 @@
+package info.unterrainer.commons.restclient;
+
+import info.unterrainer.commons.restclient.jsons.TokenResponseJson;
+
+/**
+ * Gets tokens for a {@link KeycloakContext}.
+ * <p>
+ * The context caches the tokens, makes sure that only one request for a new
+ * token is in flight at any time and decides when to call which method.
+ */
+public interface TokenProvider {
+
+	/**
+	 * Gets a new token from scratch (using credentials, for example).
+	 *
+	 * @param client the client to make the call with
+	 * @return the token or null, if there was none to get
+	 */
+	TokenResponseJson fetch(RestClient client);
+
+	/**
+	 * Gets a new token using a refresh-token.
+	 * <p>
+	 * The default implementation doesn't support refreshing and returns null,
+	 * which makes the context fall back to {@link #fetch(RestClient)}.
+	 *
+	 * @param client       the client to make the call with
+	 * @param refreshToken the current refresh-token
+	 * @return the token or null, if refreshing is not supported
+	 */
+	default TokenResponseJson refresh(final RestClient client, final String refreshToken) {
+		return null;
+	}
+}
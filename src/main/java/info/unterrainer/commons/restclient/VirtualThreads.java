@@ -0,0 +1,61 @@
+package info.unterrainer.commons.restclient;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Access to virtual threads (Java 21+) while still compiling against and
+ * running on older versions.
+ */
+@Slf4j
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+final class VirtualThreads {
+
+	private static final ExecutorService VIRTUAL = createVirtual();
+	private static ExecutorService platform;
+
+	private static ExecutorService createVirtual() {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		} catch (ReflectiveOperationException | RuntimeException e) {
+			return null;
+		}
+	}
+
+	static boolean isAvailable() {
+		return VIRTUAL != null;
+	}
+
+	/**
+	 * Returns the shared executor starting a new virtual thread per task.
+	 * <p>
+	 * If the JVM doesn't support virtual threads, this is an unbounded pool of
+	 * daemon platform threads instead, which runs the same tasks, but doesn't
+	 * scale as far.
+	 *
+	 * @return the executor
+	 */
+	static ExecutorService executor() {
+		if (VIRTUAL != null)
+			return VIRTUAL;
+		return platform();
+	}
+
+	private static synchronized ExecutorService platform() {
+		if (platform == null) {
+			log.warn("Virtual threads are not supported by this JVM. Using platform threads instead.");
+			AtomicInteger count = new AtomicInteger();
+			platform = Executors.newCachedThreadPool(r -> {
+				Thread thread = new Thread(r, "restclient-blocking-" + count.incrementAndGet());
+				thread.setDaemon(true);
+				return thread;
+			});
+		}
+		return platform;
+	}
+}
@@ -0,0 +1,52 @@
+package info.unterrainer.commons.restclient.compression;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+/**
+ * Decompresses the {@code br} coding using the pure-Java decoder
+ * {@code org.brotli:dec}, which is an optional dependency.
+ */
+public class BrotliCodec implements ContentCodec {
+
+	/**
+	 * Returns true if the decoder is on the classpath.
+	 *
+	 * @return true, if this codec may be used
+	 */
+	public static boolean isAvailable() {
+		return Codecs.isPresent("org.brotli.dec.BrotliInputStream");
+	}
+
+	@Override
+	public String encoding() {
+		return "br";
+	}
+
+	@Override
+	public boolean canEncode() {
+		return false;
+	}
+
+	@Override
+	public Sink encode(final Sink sink) {
+		throw new UnsupportedOperationException("Brotli is only supported for decompression.");
+	}
+
+	@Override
+	public Source decode(final Source source) throws IOException {
+		return Okio.source(Decoder.open(Okio.buffer(source).inputStream()));
+	}
+
+	// Loaded only when decoding, so that the codec may be referenced without the
+	// optional dependency being present.
+	private static class Decoder {
+		static InputStream open(final InputStream in) throws IOException {
+			return new org.brotli.dec.BrotliInputStream(in);
+		}
+	}
+}
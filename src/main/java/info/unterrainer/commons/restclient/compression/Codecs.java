@@ -0,0 +1,62 @@
+package info.unterrainer.commons.restclient.compression;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import lombok.AccessLevel;
+import lombok.NoArgsConstructor;
+
+@NoArgsConstructor(access = AccessLevel.PRIVATE)
+public final class Codecs {
+
+	/**
+	 * Returns the codecs available on the classpath in the order of preference:
+	 * gzip, deflate, brotli and zstd (the latter two only if their decoders are
+	 * present).
+	 *
+	 * @param level the compression-level to use for gzip and deflate
+	 * @return the list of codecs
+	 */
+	public static List<ContentCodec> available(final int level) {
+		List<ContentCodec> result = new ArrayList<>();
+		result.add(new GzipCodec(level));
+		result.add(new DeflateCodec(level));
+		if (BrotliCodec.isAvailable())
+			result.add(new BrotliCodec());
+		if (ZstdCodec.isAvailable())
+			result.add(new ZstdCodec());
+		return result;
+	}
+
+	/**
+	 * Returns the codec of the given list that compresses request-bodies with the
+	 * given content-coding.
+	 *
+	 * @param codecs   the codecs to choose from
+	 * @param encoding the name of the content-coding (case-insensitive)
+	 * @return the codec
+	 * @throws IllegalArgumentException if none of the codecs is able to compress
+	 *                                  with the given coding
+	 */
+	public static ContentCodec encoderFor(final List<ContentCodec> codecs, final String encoding) {
+		List<String> supported = new ArrayList<>();
+		for (ContentCodec codec : codecs) {
+			if (!codec.canEncode())
+				continue;
+			if (codec.encoding().equalsIgnoreCase(encoding))
+				return codec;
+			supported.add(codec.encoding());
+		}
+		throw new IllegalArgumentException(String.format(
+				"Request-bodies can't be compressed with [%s]. Supported are %s.", encoding, supported));
+	}
+
+	static boolean isPresent(final String className) {
+		try {
+			Class.forName(className, false, Codecs.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+}
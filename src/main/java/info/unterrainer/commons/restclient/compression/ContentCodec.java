@@ -0,0 +1,47 @@
+package info.unterrainer.commons.restclient.compression;
+
+import java.io.IOException;
+
+import okio.Sink;
+import okio.Source;
+
+/**
+ * A content-coding as used in the {@code Content-Encoding} and
+ * {@code Accept-Encoding} headers.
+ */
+public interface ContentCodec {
+
+	/**
+	 * Returns the name of the coding as used in the headers (like {@code gzip}).
+	 *
+	 * @return the name of the coding
+	 */
+	String encoding();
+
+	/**
+	 * Returns true if this codec is able to compress request-bodies. Some codecs
+	 * are only able to decompress.
+	 *
+	 * @return true, if {@link #encode(Sink)} is supported
+	 */
+	default boolean canEncode() {
+		return true;
+	}
+
+	/**
+	 * Wraps the given sink, so that everything written to it is compressed.
+	 *
+	 * @param sink the sink to write the compressed data to
+	 * @return the compressing sink
+	 */
+	Sink encode(Sink sink);
+
+	/**
+	 * Wraps the given source, so that it is decompressed lazily while reading.
+	 *
+	 * @param source the compressed source
+	 * @return the decompressing source
+	 * @throws IOException if the stream could not be opened
+	 */
+	Source decode(Source source) throws IOException;
+}
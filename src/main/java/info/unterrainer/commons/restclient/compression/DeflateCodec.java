@@ -0,0 +1,86 @@
+package info.unterrainer.commons.restclient.compression;
+
+import java.io.IOException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import lombok.RequiredArgsConstructor;
+import okio.Buffer;
+import okio.BufferedSource;
+import okio.DeflaterSink;
+import okio.InflaterSource;
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+import okio.Timeout;
+
+/**
+ * The {@code deflate} coding (zlib-format as defined in RFC 1950).
+ * <p>
+ * Some servers send raw deflate-data (RFC 1951) without the zlib-wrapper, so
+ * the decoder accepts both.
+ */
+@RequiredArgsConstructor
+public class DeflateCodec implements ContentCodec {
+
+	/**
+	 * The compression-level (0-9 or {@link Deflater#DEFAULT_COMPRESSION}).
+	 */
+	private final int level;
+
+	public DeflateCodec() {
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	@Override
+	public String encoding() {
+		return "deflate";
+	}
+
+	@Override
+	public Sink encode(final Sink sink) {
+		return new DeflaterSink(sink, new Deflater(level));
+	}
+
+	@Override
+	public Source decode(final Source source) {
+		BufferedSource buffered = Okio.buffer(source);
+		return new Source() {
+			private Source inflating;
+
+			@Override
+			public long read(final Buffer sink, final long byteCount) throws IOException {
+				// Decide on the first read, so that decoding stays lazy.
+				if (inflating == null)
+					inflating = new InflaterSource(buffered, new Inflater(!isZlib(buffered)));
+				return inflating.read(sink, byteCount);
+			}
+
+			@Override
+			public Timeout timeout() {
+				return buffered.timeout();
+			}
+
+			@Override
+			public void close() throws IOException {
+				if (inflating != null)
+					inflating.close();
+				else
+					buffered.close();
+			}
+		};
+	}
+
+	/**
+	 * Checks the two bytes of the zlib-header (RFC 1950, section 2.2), which raw
+	 * deflate-data practically never matches.
+	 */
+	private static boolean isZlib(final BufferedSource source) throws IOException {
+		if (!source.request(2L))
+			return true;
+		BufferedSource header = source.peek();
+		int cmf = header.readByte() & 0xff;
+		int flg = header.readByte() & 0xff;
+		return (cmf & 0x0f) == 8 && (cmf * 256 + flg) % 31 == 0;
+	}
+}
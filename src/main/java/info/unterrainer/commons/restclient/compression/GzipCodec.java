@@ -0,0 +1,39 @@
+package info.unterrainer.commons.restclient.compression;
+
+import java.util.zip.Deflater;
+
+import lombok.RequiredArgsConstructor;
+import okio.GzipSink;
+import okio.GzipSource;
+import okio.Sink;
+import okio.Source;
+
+@RequiredArgsConstructor
+public class GzipCodec implements ContentCodec {
+
+	/**
+	 * The compression-level (0-9 or {@link Deflater#DEFAULT_COMPRESSION}).
+	 */
+	private final int level;
+
+	public GzipCodec() {
+		this(Deflater.DEFAULT_COMPRESSION);
+	}
+
+	@Override
+	public String encoding() {
+		return "gzip";
+	}
+
+	@Override
+	public Sink encode(final Sink sink) {
+		GzipSink gzipSink = new GzipSink(sink);
+		gzipSink.deflater().setLevel(level);
+		return gzipSink;
+	}
+
+	@Override
+	public Source decode(final Source source) {
+		return new GzipSource(source);
+	}
+}
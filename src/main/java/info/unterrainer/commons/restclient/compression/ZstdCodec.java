@@ -0,0 +1,51 @@
+package info.unterrainer.commons.restclient.compression;
+
+import java.io.InputStream;
+
+import okio.Okio;
+import okio.Sink;
+import okio.Source;
+
+/**
+ * Decompresses the {@code zstd} coding using the pure-Java decoder of
+ * {@code io.airlift:aircompressor}, which is an optional dependency.
+ */
+public class ZstdCodec implements ContentCodec {
+
+	/**
+	 * Returns true if the decoder is on the classpath.
+	 *
+	 * @return true, if this codec may be used
+	 */
+	public static boolean isAvailable() {
+		return Codecs.isPresent("io.airlift.compress.zstd.ZstdInputStream");
+	}
+
+	@Override
+	public String encoding() {
+		return "zstd";
+	}
+
+	@Override
+	public boolean canEncode() {
+		return false;
+	}
+
+	@Override
+	public Sink encode(final Sink sink) {
+		throw new UnsupportedOperationException("Zstd is only supported for decompression.");
+	}
+
+	@Override
+	public Source decode(final Source source) {
+		return Okio.source(Decoder.open(Okio.buffer(source).inputStream()));
+	}
+
+	// Loaded only when decoding, so that the codec may be referenced without the
+	// optional dependency being present.
+	private static class Decoder {
+		static InputStream open(final InputStream in) {
+			return new io.airlift.compress.zstd.ZstdInputStream(in);
+		}
+	}
+}
@@ -0,0 +1,27 @@
+package info.unterrainer.commons.restclient.exceptions;
+
+public class CircuitOpenException extends RestClientException {
+
+	private static final long serialVersionUID = 4203848614723551609L;
+
+	public CircuitOpenException() {
+		super();
+	}
+
+	public CircuitOpenException(final String message, final Throwable cause, final boolean enableSuppression,
+			final boolean writableStackTrace) {
+		super(message, cause, enableSuppression, writableStackTrace);
+	}
+
+	public CircuitOpenException(final String message, final Throwable cause) {
+		super(message, cause);
+	}
+
+	public CircuitOpenException(final String message) {
+		super(message);
+	}
+
+	public CircuitOpenException(final Throwable cause) {
+		super(cause);
+	}
+}
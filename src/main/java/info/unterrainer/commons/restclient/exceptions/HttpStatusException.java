@@ -0,0 +1,16 @@
+package info.unterrainer.commons.restclient.exceptions;
+
+import lombok.Getter;
+
+public class HttpStatusException extends RestClientException {
+
+	private static final long serialVersionUID = -1849170321578425162L;
+
+	@Getter
+	private final int statusCode;
+
+	public HttpStatusException(final String message, final int statusCode) {
+		super(message);
+		this.statusCode = statusCode;
+	}
+}
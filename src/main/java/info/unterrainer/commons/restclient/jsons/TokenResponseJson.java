@@ -23,6 +23,9 @@ public class TokenResponseJson {
 	@JsonProperty("expires_in")
 	private Long expiresIn;
 
+	@JsonProperty("refresh_expires_in")
+	private Long refreshExpiresIn;
+
 	@JsonProperty("id_token")
 	private String idToken;
 }
@@ -0,0 +1,143 @@
+package info.unterrainer.commons.restclient.metrics;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+/**
+ * Records the durations in HDR-histograms per route and phase.
+ * <p>
+ * Recording is wait-free. {@link #snapshot(String, Phase)} returns the values
+ * recorded since the last snapshot of the same histogram, so a reporter can
+ * export intervals. Needs {@code org.hdrhistogram:HdrHistogram} on the
+ * classpath (an optional dependency). Without it, implement a
+ * {@link MetricsRecorder} of your own.
+ */
+public class HdrMetricsRecorder implements MetricsRecorder {
+
+	private static final int SIGNIFICANT_DIGITS = 2;
+
+	private final Map<String, Map<Phase, Recorder>> phases = new ConcurrentHashMap<>();
+	private final Recorder attempts;
+	private final Recorder tokenRefreshes;
+	private final AtomicLong failedCalls = new AtomicLong();
+	private final AtomicLong failedTokenRefreshes = new AtomicLong();
+	private final AtomicInteger connections = new AtomicInteger();
+	private final AtomicInteger idleConnections = new AtomicInteger();
+
+	/**
+	 * Returns true if HdrHistogram is on the classpath.
+	 *
+	 * @return true, if this recorder may be used
+	 */
+	public static boolean isAvailable() {
+		try {
+			Class.forName("org.HdrHistogram.Recorder", false, HdrMetricsRecorder.class.getClassLoader());
+			return true;
+		} catch (ClassNotFoundException | LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * Creates an empty recorder.
+	 *
+	 * @throws IllegalStateException if HdrHistogram is not on the classpath (see
+	 *                               {@link #isAvailable()})
+	 */
+	public HdrMetricsRecorder() {
+		if (!isAvailable())
+			throw new IllegalStateException(
+					"The HdrMetricsRecorder needs org.hdrhistogram:HdrHistogram on the classpath.");
+		attempts = new Recorder(SIGNIFICANT_DIGITS);
+		tokenRefreshes = new Recorder(SIGNIFICANT_DIGITS);
+	}
+
+	@Override
+	public void recordPhase(final String route, final Phase phase, final long nanos) {
+		if (nanos < 0L)
+			return;
+		recorder(route, phase).recordValue(nanos);
+	}
+
+	@Override
+	public void recordAttempts(final int attempts, final boolean success) {
+		this.attempts.recordValue(attempts);
+		if (!success)
+			failedCalls.incrementAndGet();
+	}
+
+	@Override
+	public void recordPool(final int connections, final int idleConnections) {
+		this.connections.set(connections);
+		this.idleConnections.set(idleConnections);
+	}
+
+	@Override
+	public void recordTokenRefresh(final long nanos, final boolean success) {
+		tokenRefreshes.recordValue(Math.max(0L, nanos));
+		if (!success)
+			failedTokenRefreshes.incrementAndGet();
+	}
+
+	private Recorder recorder(final String route, final Phase phase) {
+		return phases.computeIfAbsent(route, r -> new ConcurrentHashMap<>())
+				.computeIfAbsent(phase, p -> new Recorder(SIGNIFICANT_DIGITS));
+	}
+
+	/**
+	 * Returns the durations (in nanoseconds) of the phase recorded for the route
+	 * since the last call and resets them.
+	 *
+	 * @param route the route (like {@code example.com:443})
+	 * @param phase the phase
+	 * @return the histogram
+	 */
+	public Histogram snapshot(final String route, final Phase phase) {
+		return recorder(route, phase).getIntervalHistogram();
+	}
+
+	/**
+	 * Returns the number of attempts per call recorded since the last call and
+	 * resets them.
+	 *
+	 * @return the histogram
+	 */
+	public Histogram attemptsSnapshot() {
+		return attempts.getIntervalHistogram();
+	}
+
+	/**
+	 * Returns the durations (in nanoseconds) of the token-refreshes recorded since
+	 * the last call and resets them.
+	 *
+	 * @return the histogram
+	 */
+	public Histogram tokenRefreshSnapshot() {
+		return tokenRefreshes.getIntervalHistogram();
+	}
+
+	public Iterable<String> routes() {
+		return phases.keySet();
+	}
+
+	public long failedCalls() {
+		return failedCalls.get();
+	}
+
+	public long failedTokenRefreshes() {
+		return failedTokenRefreshes.get();
+	}
+
+	public int connections() {
+		return connections.get();
+	}
+
+	public int idleConnections() {
+		return idleConnections.get();
+	}
+}
@@ -0,0 +1,162 @@
+package info.unterrainer.commons.restclient.metrics;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Proxy;
+import java.util.List;
+
+import okhttp3.Call;
+import okhttp3.ConnectionPool;
+import okhttp3.EventListener;
+import okhttp3.Handshake;
+import okhttp3.Protocol;
+import okhttp3.Request;
+import okhttp3.Response;
+
+/**
+ * Times the phases of a call and reports them to a {@link MetricsRecorder}.
+ * <p>
+ * One instance is created per call, so there is no synchronization needed.
+ */
+public class MetricsEventListener extends EventListener {
+
+	private final MetricsRecorder recorder;
+	private final ConnectionPool pool;
+	private final String route;
+
+	private long callStart;
+	private long dnsStart;
+	private long connectStart;
+	private long secureConnectStart;
+	private long requestStart;
+	private long requestEnd;
+	private long bodyStart;
+
+	/**
+	 * Creates a listener per call.
+	 */
+	public static class Factory implements EventListener.Factory {
+
+		private final MetricsRecorder recorder;
+		private final ConnectionPool pool;
+
+		public Factory(final MetricsRecorder recorder, final ConnectionPool pool) {
+			this.recorder = recorder;
+			this.pool = pool;
+		}
+
+		@Override
+		public EventListener create(final Call call) {
+			return new MetricsEventListener(recorder, pool, routeOf(call.request()));
+		}
+	}
+
+	MetricsEventListener(final MetricsRecorder recorder, final ConnectionPool pool, final String route) {
+		this.recorder = recorder;
+		this.pool = pool;
+		this.route = route;
+	}
+
+	static String routeOf(final Request request) {
+		return request.url().host() + ":" + request.url().port();
+	}
+
+	@Override
+	public void callStart(final Call call) {
+		callStart = System.nanoTime();
+	}
+
+	@Override
+	public void dnsStart(final Call call, final String domainName) {
+		dnsStart = System.nanoTime();
+	}
+
+	@Override
+	public void dnsEnd(final Call call, final String domainName, final List<InetAddress> inetAddressList) {
+		recorder.recordPhase(route, Phase.DNS, System.nanoTime() - dnsStart);
+	}
+
+	@Override
+	public void connectStart(final Call call, final InetSocketAddress inetSocketAddress, final Proxy proxy) {
+		connectStart = System.nanoTime();
+	}
+
+	@Override
+	public void secureConnectStart(final Call call) {
+		secureConnectStart = System.nanoTime();
+	}
+
+	@Override
+	public void secureConnectEnd(final Call call, final Handshake handshake) {
+		recorder.recordPhase(route, Phase.TLS, System.nanoTime() - secureConnectStart);
+	}
+
+	@Override
+	public void connectEnd(final Call call, final InetSocketAddress inetSocketAddress, final Proxy proxy,
+			final Protocol protocol) {
+		recorder.recordPhase(route, Phase.CONNECT, System.nanoTime() - connectStart);
+	}
+
+	@Override
+	public void connectFailed(final Call call, final InetSocketAddress inetSocketAddress, final Proxy proxy,
+			final Protocol protocol, final IOException ioe) {
+		recorder.recordPhase(route, Phase.CONNECT, System.nanoTime() - connectStart);
+	}
+
+	@Override
+	public void requestHeadersStart(final Call call) {
+		requestStart = System.nanoTime();
+	}
+
+	@Override
+	public void requestHeadersEnd(final Call call, final Request request) {
+		requestEnd = System.nanoTime();
+	}
+
+	@Override
+	public void requestBodyEnd(final Call call, final long byteCount) {
+		requestEnd = System.nanoTime();
+	}
+
+	@Override
+	public void responseHeadersStart(final Call call) {
+		long now = System.nanoTime();
+		if (requestStart != 0L) {
+			recorder.recordPhase(route, Phase.REQUEST_WRITE, requestEnd - requestStart);
+			recorder.recordPhase(route, Phase.TIME_TO_FIRST_BYTE, now - requestEnd);
+		}
+	}
+
+	@Override
+	public void responseBodyStart(final Call call) {
+		bodyStart = System.nanoTime();
+	}
+
+	@Override
+	public void responseBodyEnd(final Call call, final long byteCount) {
+		recorder.recordPhase(route, Phase.BODY_READ, System.nanoTime() - bodyStart);
+	}
+
+	@Override
+	public void callEnd(final Call call) {
+		end();
+	}
+
+	@Override
+	public void callFailed(final Call call, final IOException ioe) {
+		end();
+	}
+
+	@Override
+	public void responseFailed(final Call call, final IOException ioe) {
+		if (bodyStart != 0L)
+			recorder.recordPhase(route, Phase.BODY_READ, System.nanoTime() - bodyStart);
+	}
+
+	private void end() {
+		recorder.recordPhase(route, Phase.CALL, System.nanoTime() - callStart);
+		if (pool != null)
+			recorder.recordPool(pool.connectionCount(), pool.idleConnectionCount());
+	}
+}
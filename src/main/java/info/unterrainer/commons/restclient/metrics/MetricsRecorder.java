@@ -0,0 +1,49 @@
+package info.unterrainer.commons.restclient.metrics;
+
+/**
+ * Receives the metrics of a {@link info.unterrainer.commons.restclient.RestClient}.
+ * <p>
+ * All methods are called on the threads making the calls, so implementations
+ * have to be thread-safe and cheap. Every method has an empty default, so
+ * implementations only override what they're interested in. See
+ * {@link HdrMetricsRecorder} for an implementation based on HDR-histograms.
+ */
+public interface MetricsRecorder {
+
+	/**
+	 * Records the duration of a phase of a call.
+	 *
+	 * @param route the host and port called (like {@code example.com:443})
+	 * @param phase the phase
+	 * @param nanos the duration in nanoseconds
+	 */
+	default void recordPhase(final String route, final Phase phase, final long nanos) {
+	}
+
+	/**
+	 * Records the number of attempts it took to make a call (including retries).
+	 *
+	 * @param attempts the number of attempts (1 if there was no retry)
+	 * @param success  false, if the call failed after the last attempt
+	 */
+	default void recordAttempts(final int attempts, final boolean success) {
+	}
+
+	/**
+	 * Records the utilization of the connection-pool after a call.
+	 *
+	 * @param connections     the number of connections in the pool
+	 * @param idleConnections the number of idle connections in the pool
+	 */
+	default void recordPool(final int connections, final int idleConnections) {
+	}
+
+	/**
+	 * Records the time it took to get a new access-token.
+	 *
+	 * @param nanos   the duration in nanoseconds
+	 * @param success false, if no token was received
+	 */
+	default void recordTokenRefresh(final long nanos, final boolean success) {
+	}
+}
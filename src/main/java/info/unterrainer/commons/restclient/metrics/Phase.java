@@ -0,0 +1,30 @@
+package info.unterrainer.commons.restclient.metrics;
+
+/**
+ * The phases of a call that are timed.
+ */
+public enum Phase {
+	DNS,
+	CONNECT,
+	TLS,
+	/**
+	 * Writing the headers and the body of the request.
+	 */
+	REQUEST_WRITE,
+	/**
+	 * From the end of the request to the start of the response-headers.
+	 */
+	TIME_TO_FIRST_BYTE,
+	/**
+	 * From the start to the end of the response-body.
+	 */
+	BODY_READ,
+	/**
+	 * Reading and converting the response to the return-type.
+	 */
+	DESERIALIZATION,
+	/**
+	 * The whole call.
+	 */
+	CALL
+}
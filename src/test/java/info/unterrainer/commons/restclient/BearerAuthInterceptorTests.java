@@ -0,0 +1,106 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.exceptions.HttpStatusException;
+import info.unterrainer.commons.restclient.exceptions.UnauthorizedException;
+import info.unterrainer.commons.restclient.jsons.TokenResponseJson;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class BearerAuthInterceptorTests {
+
+	private final AtomicInteger tokens = new AtomicInteger();
+	private MockWebServer server;
+	private RestClient client;
+	private KeycloakContext kcc;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new MockWebServer();
+		server.start();
+		client = new RestClient(JsonMapper.create());
+		kcc = new KeycloakContext(c -> TokenResponseJson.builder()
+				.accessToken("token-" + tokens.incrementAndGet())
+				.build());
+	}
+
+	@AfterEach
+	public void shutdown() throws IOException {
+		server.shutdown();
+	}
+
+	private String get(final String path) {
+		return kcc.<String>get(client, String.class).addUrl(server.url(path).toString()).execute();
+	}
+
+	@Test
+	public void tokenIsAttached() throws InterruptedException {
+		server.enqueue(new MockResponse().setBody("ok"));
+
+		assertEquals("ok", get("/users"));
+		assertEquals("Bearer token-1", server.takeRequest().getHeader("Authorization"));
+	}
+
+	@Test
+	public void rejectedTokenIsRenewedOnce() throws InterruptedException {
+		server.enqueue(new MockResponse().setResponseCode(401));
+		server.enqueue(new MockResponse().setBody("ok"));
+
+		assertEquals("ok", get("/users"));
+		assertEquals("Bearer token-1", server.takeRequest().getHeader("Authorization"));
+		assertEquals("Bearer token-2", server.takeRequest().getHeader("Authorization"));
+	}
+
+	@Test
+	public void tokenIsRenewedAfterARedirect() throws InterruptedException {
+		server.enqueue(new MockResponse().setResponseCode(302).setHeader("Location", "/moved"));
+		server.enqueue(new MockResponse().setResponseCode(401));
+		server.enqueue(new MockResponse().setBody("ok"));
+
+		assertEquals("ok", get("/users"));
+		assertEquals(3, server.getRequestCount());
+		server.takeRequest();
+		server.takeRequest();
+		assertEquals("Bearer token-2", server.takeRequest().getHeader("Authorization"));
+	}
+
+	@Test
+	public void secondRejectionGivesUp() {
+		server.enqueue(new MockResponse().setResponseCode(401));
+		server.enqueue(new MockResponse().setResponseCode(401));
+		server.enqueue(new MockResponse().setBody("not reached"));
+
+		HttpStatusException e = assertThrows(HttpStatusException.class, () -> get("/users"));
+		assertEquals(401, e.getStatusCode());
+		assertEquals(2, server.getRequestCount());
+	}
+
+	@Test
+	public void failedTokenReachesAsyncCallers() {
+		KeycloakContext failing = new KeycloakContext(c -> {
+			throw new UnauthorizedException("No token for you.");
+		});
+
+		CompletionException e = assertThrows(CompletionException.class,
+				() -> failing.<String>get(client, String.class)
+						.addUrl(server.url("/users").toString())
+						.executeAsync()
+						.orTimeout(5L, TimeUnit.SECONDS)
+						.join());
+		assertTrue(e.getCause() instanceof UnauthorizedException);
+		assertEquals(0, server.getRequestCount());
+	}
+}
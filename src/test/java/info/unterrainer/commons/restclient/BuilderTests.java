@@ -1,10 +1,29 @@
 package info.unterrainer.commons.restclient;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import info.unterrainer.commons.restclient.exceptions.HttpStatusException;
 import info.unterrainer.commons.restclient.jsons.MessageJson;
 import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
 
 public class BuilderTests {
 
@@ -40,4 +59,141 @@ public class BuilderTests {
 		String response = restClient.<String>get(String.class).addUrl("https://www.google.at/").execute();
 		System.out.println(response);
 	}
+
+	@Test
+	public void delSendsDelete() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setBody("gone"));
+			server.enqueue(new MockResponse().setBody("gone"));
+			String url = server.url("/users/1").toString();
+
+			assertEquals("gone", restClient.<String>del(String.class).addUrl(url).execute());
+			assertEquals("gone", restClient.<String>del(String.class).addUrl(url).executeAsync().join());
+
+			assertEquals("DELETE", server.takeRequest().getMethod());
+			assertEquals("DELETE", server.takeRequest().getMethod());
+		}
+	}
+
+	@Test
+	public void executeOnVirtualThreadRunsOnEveryJvm() throws IOException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setBody("ok"));
+
+			String response = restClient.<String>get(String.class)
+					.addUrl(server.url("/blocking").toString())
+					.executeOnVirtualThread()
+					.join();
+
+			assertEquals("ok", response);
+		}
+	}
+
+	private static final RetryPolicy RETRY_ON_503 = RetryPolicy.builder()
+			.maxAttempts(3)
+			.baseDelayMillis(1L)
+			.retryOnStatus(503)
+			.build();
+
+	@Test
+	public void replayableBodyIsRetried() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setResponseCode(503));
+			server.enqueue(new MockResponse().setBody("ok"));
+
+			String response = restClient.<String>post(String.class)
+					.addUrl(server.url("/upload").toString())
+					.retry(RETRY_ON_503)
+					.body("payload")
+					.execute();
+
+			assertEquals("ok", response);
+			assertEquals(2, server.getRequestCount());
+			assertEquals("payload", server.takeRequest().getBody().readUtf8());
+			assertEquals("payload", server.takeRequest().getBody().readUtf8());
+		}
+	}
+
+	@Test
+	public void oneShotBodyIsNotRetried() throws IOException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setResponseCode(503));
+			server.enqueue(new MockResponse().setBody("ok"));
+
+			PostBuilder<String> builder = restClient.<String>post(String.class);
+			builder.addUrl(server.url("/upload").toString())
+					.retry(RETRY_ON_503);
+			builder.body(new ByteArrayInputStream("payload".getBytes(StandardCharsets.UTF_8)));
+
+			assertThrows(HttpStatusException.class, builder::execute);
+			assertEquals(1, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void resumedDownloadRangesEveryAttemptFromTheCurrentSize() throws IOException, InterruptedException {
+		String content = "0123456789abcdefghijklmnopqrstuvwxyz";
+		AtomicInteger requests = new AtomicInteger();
+		Path target = Files.createTempFile("download", ".txt");
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(final RecordedRequest request) {
+					String range = request.getHeader("Range");
+					int from = range == null ? 0 : Integer.parseInt(range.substring(6, range.length() - 1));
+					MockResponse response = new MockResponse().setResponseCode(range == null ? 200 : 206)
+							.setBody(content.substring(from));
+					// The first attempt breaks off in the middle of the body.
+					if (requests.incrementAndGet() == 1)
+						response.setSocketPolicy(SocketPolicy.DISCONNECT_DURING_RESPONSE_BODY);
+					return response;
+				}
+			});
+			Files.writeString(target, content.substring(0, 4));
+
+			GetBuilder<String> builder = restClient.<String>get(String.class);
+			builder.addUrl(server.url("/file").toString())
+					.retry(RetryPolicy.builder().maxAttempts(3).baseDelayMillis(1L).build());
+			builder.executeTo(target, true);
+
+			assertEquals(content, Files.readString(target));
+			assertEquals("bytes=4-", server.takeRequest().getHeader("Range"));
+			server.takeRequest();
+			assertNull(builder.headers.get("Range"));
+		} finally {
+			Files.deleteIfExists(target);
+		}
+	}
+
+	@Test
+	public void rangedDownloadReplacesTheFile() throws IOException {
+		Path target = Files.createTempFile("download", ".txt");
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setResponseCode(206).setBody("0123"));
+			Files.writeString(target, "old content");
+
+			restClient.<String>get(String.class).addUrl(server.url("/file").toString()).range(0L, 3L).executeTo(target);
+
+			assertEquals("0123", Files.readString(target));
+		} finally {
+			Files.deleteIfExists(target);
+		}
+	}
+
+	@Test
+	public void emptyJsonBodyFailsWithoutRetrying() throws IOException {
+		RestClient streaming = new RestClient(jsonMapper,
+				RestClientConfig.builder().objectMapper(new ObjectMapper()).build());
+		for (RestClient client : new RestClient[] { restClient, streaming })
+			try (MockWebServer server = new MockWebServer()) {
+				server.enqueue(new MockResponse());
+				server.enqueue(new MockResponse().setBody("{\"message\":\"retried\"}"));
+
+				assertThrows(RuntimeException.class, () -> client.<MessageJson>get(MessageJson.class)
+						.addUrl(server.url("/message").toString())
+						.retry(RetryPolicy.builder().maxAttempts(2).baseDelayMillis(1L).build())
+						.execute());
+				assertEquals(1, server.getRequestCount());
+			}
+	}
 }
@@ -0,0 +1,187 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.RestClient.HttpAsyncCall;
+import info.unterrainer.commons.restclient.RestClient.HttpGetCall;
+import info.unterrainer.commons.restclient.RestClient.ResponseReader;
+import info.unterrainer.commons.restclient.exceptions.CircuitOpenException;
+import info.unterrainer.commons.restclient.exceptions.RestClientException;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.Headers;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.mockwebserver.SocketPolicy;
+
+public class BulkExecutionTests {
+
+	private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(4);
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+
+	@AfterEach
+	public void shutdown() {
+		scheduler.shutdownNow();
+	}
+
+	/**
+	 * Completes with its index after the given delay or fails if the delay is
+	 * negative.
+	 */
+	private class FakeBuilder extends BaseBuilder<Integer, FakeBuilder> {
+		private final int index;
+		private final long delay;
+		private CompletableFuture<Integer> future;
+
+		FakeBuilder(final int index, final long delay) {
+			super(null, Integer.class);
+			this.index = index;
+			this.delay = delay;
+		}
+
+		@Override
+		public CompletableFuture<Integer> executeAsync() {
+			maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+			future = new CompletableFuture<>();
+			future.whenComplete((r, e) -> inFlight.decrementAndGet());
+			scheduler.schedule(() -> {
+				if (delay < 0L)
+					future.completeExceptionally(new IllegalStateException("failed"));
+				else
+					future.complete(index);
+			}, Math.abs(delay), TimeUnit.MILLISECONDS);
+			return future;
+		}
+
+		@Override
+		protected <V> HttpGetCall<V> provideCall(final HttpUrl url, final Headers headers,
+				final ResponseReader<V> reader) {
+			return null;
+		}
+
+		@Override
+		protected <V> HttpAsyncCall<V> provideAsyncCall(final HttpUrl url, final Headers headers,
+				final ResponseReader<V> reader) {
+			return null;
+		}
+	}
+
+	/**
+	 * Fails right away, like a call to a host with an open circuit.
+	 */
+	private class FailedBuilder extends FakeBuilder {
+
+		FailedBuilder(final int index) {
+			super(index, 0L);
+		}
+
+		@Override
+		public CompletableFuture<Integer> executeAsync() {
+			return CompletableFuture.failedFuture(new CircuitOpenException("open"));
+		}
+	}
+
+	@Test
+	public void resultsAreInOrderAndInFlightIsLimited() {
+		List<FakeBuilder> builders = new ArrayList<>();
+		for (int i = 0; i < 20; i++)
+			builders.add(new FakeBuilder(i, 20 - i));
+
+		List<Outcome<Integer>> outcomes = new BulkExecution<>(builders,
+				BulkOptions.builder().maxInFlight(4).build()).run(scheduler).join();
+
+		for (int i = 0; i < 20; i++)
+			assertEquals(i, outcomes.get(i).getValue());
+		assertTrue(maxInFlight.get() <= 4);
+	}
+
+	@Test
+	public void firstFailureCancelsTheOthers() {
+		List<FakeBuilder> builders = List.of(new FakeBuilder(0, 5000L), new FakeBuilder(1, -10L),
+				new FakeBuilder(2, 5000L), new FakeBuilder(3, 5000L));
+
+		List<Outcome<Integer>> outcomes = new BulkExecution<>(builders,
+				BulkOptions.builder().maxInFlight(3).build()).run(scheduler).join();
+
+		assertTrue(outcomes.get(0).getFailure() instanceof CancellationException);
+		assertTrue(outcomes.get(1).getFailure() instanceof IllegalStateException);
+		assertTrue(outcomes.get(2).getFailure() instanceof CancellationException);
+		assertTrue(builders.get(2).future.isCancelled());
+		assertTrue(outcomes.get(3).getFailure() instanceof CancellationException);
+		assertEquals(null, builders.get(3).future);
+	}
+
+	@Test
+	public void deadlineCancelsOutstandingCalls() {
+		List<FakeBuilder> builders = List.of(new FakeBuilder(0, 5L), new FakeBuilder(1, 5000L));
+
+		List<Outcome<Integer>> outcomes = new BulkExecution<>(builders,
+				BulkOptions.builder().deadlineMillis(100L).failFast(false).build()).run(scheduler).join();
+
+		assertTrue(outcomes.get(0).isSuccess());
+		assertFalse(outcomes.get(1).isSuccess());
+		assertTrue(outcomes.get(1).getFailure() instanceof TimeoutException);
+	}
+
+	@Test
+	public void callsFailingRightAwayDontGrowTheStack() {
+		List<FakeBuilder> builders = new ArrayList<>();
+		for (int i = 0; i < 10000; i++)
+			builders.add(new FailedBuilder(i));
+
+		List<Outcome<Integer>> outcomes = new BulkExecution<>(builders,
+				BulkOptions.builder().maxInFlight(4).failFast(false).build()).run(scheduler)
+						.orTimeout(10L, TimeUnit.SECONDS)
+						.join();
+
+		assertEquals(10000, outcomes.size());
+		for (Outcome<Integer> outcome : outcomes)
+			assertTrue(outcome.getFailure() instanceof CircuitOpenException);
+	}
+
+	@Test
+	public void networkFailureIsAFailedOutcome() throws IOException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(new Dispatcher() {
+				@Override
+				public MockResponse dispatch(final RecordedRequest request) {
+					if (request.getPath().equals("/down"))
+						return new MockResponse().setSocketPolicy(SocketPolicy.DISCONNECT_AT_START);
+					return new MockResponse().setBody("late").setHeadersDelay(10L, TimeUnit.SECONDS);
+				}
+			});
+			RestClient client = new RestClient(JsonMapper.create());
+			List<BaseBuilder<String, ?>> builders = List.of(
+					client.<String>get(String.class).addUrl(server.url("/slow").toString()),
+					client.<String>get(String.class).addUrl(server.url("/down").toString()));
+
+			List<Outcome<String>> outcomes = new BulkExecution<String>(builders, BulkOptions.builder().build())
+					.run(scheduler)
+					.orTimeout(5L, TimeUnit.SECONDS)
+					.join();
+
+			assertTrue(outcomes.get(0).getFailure() instanceof CancellationException);
+			assertTrue(outcomes.get(1).getFailure() instanceof RestClientException);
+			assertTrue(outcomes.get(1).getFailure().getCause() instanceof IOException);
+		}
+	}
+}
@@ -0,0 +1,140 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.CircuitBreaker.Permit;
+import info.unterrainer.commons.restclient.exceptions.UnauthorizedException;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.HttpUrl;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class CircuitBreakerTests {
+
+	private static final String URL = "https://down.example.com/api/users";
+	private static final String OTHER_URL = "https://up.example.com/api/users";
+
+	@Test
+	public void circuitOpensPerHostAfterThreshold() {
+		CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(3).openMillis(60000L).build();
+
+		for (int i = 0; i < 3; i++) {
+			assertTrue(breaker.allow(URL));
+			breaker.onFailure(URL);
+		}
+
+		assertFalse(breaker.allow(URL));
+		assertFalse(breaker.allow("https://down.example.com/api/other"));
+		assertTrue(breaker.allow(OTHER_URL));
+	}
+
+	@Test
+	public void singleTrialCallClosesCircuitAgain() throws InterruptedException {
+		CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(1).openMillis(10L).build();
+		breaker.onFailure(URL);
+		assertFalse(breaker.allow(URL));
+
+		Thread.sleep(20L);
+		assertTrue(breaker.allow(URL));
+		assertFalse(breaker.allow(URL));
+
+		breaker.onSuccess(URL);
+		assertTrue(breaker.allow(URL));
+		assertTrue(breaker.allow(URL));
+	}
+
+	@Test
+	public void releasedTrialLetsTheNextCallThrough() throws InterruptedException {
+		CircuitBreaker breaker = openedBreaker(URL);
+
+		Permit trial = breaker.acquire(HttpUrl.get(URL));
+		assertNotNull(trial);
+		assertNull(breaker.acquire(HttpUrl.get(URL)));
+
+		trial.release();
+		Permit next = breaker.acquire(HttpUrl.get(URL));
+		assertNotNull(next);
+
+		// A late outcome of the released trial doesn't touch the new one.
+		trial.onFailure();
+		assertFalse(breaker.allow(URL));
+		next.onSuccess();
+		assertTrue(breaker.allow(URL));
+	}
+
+	@Test
+	public void lostTrialTimesOut() throws InterruptedException {
+		CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(1).openMillis(10L)
+				.trialTimeoutMillis(10L).build();
+		breaker.onFailure(URL);
+		Thread.sleep(20L);
+		assertTrue(breaker.allow(URL));
+
+		Thread.sleep(20L);
+		assertTrue(breaker.allow(URL));
+	}
+
+	@Test
+	public void cancelledTrialCallFreesTheTrial() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.enqueue(new MockResponse().setBody("late").setHeadersDelay(10L, TimeUnit.SECONDS));
+			String url = server.url("/users").toString();
+			CircuitBreaker breaker = openedBreaker(url);
+			RestClient client = new RestClient(JsonMapper.create());
+			client.circuitBreaker(breaker);
+
+			CompletableFuture<String> trial = client.<String>get(String.class).addUrl(url).executeAsync();
+			assertFalse(breaker.allow(url));
+
+			trial.cancel(true);
+			assertTrue(breaker.allow(url));
+		}
+	}
+
+	@Test
+	public void throwingTrialCallFreesTheTrial() throws InterruptedException {
+		String url = "http://localhost:1/users";
+		CircuitBreaker breaker = openedBreaker(url);
+		RestClient client = new RestClient(JsonMapper.create());
+		client.circuitBreaker(breaker);
+		KeycloakContext kcc = new KeycloakContext(c -> {
+			throw new UnauthorizedException("No token for you.");
+		});
+
+		assertThrows(RuntimeException.class, () -> {
+			if (kcc.<String>get(client, String.class).addUrl(url).execute() == null)
+				throw new IllegalStateException("The call didn't work out.");
+		});
+		assertTrue(breaker.allow(url));
+	}
+
+	@Test
+	public void retryBudgetLimitsRetriesToRatio() {
+		RetryBudget budget = RetryBudget.builder().ratio(0.1D).minRetries(0).maxRetries(100).build();
+		assertFalse(budget.tryRetry());
+
+		for (int i = 0; i < 20; i++)
+			budget.onRequest();
+
+		assertTrue(budget.tryRetry());
+		assertTrue(budget.tryRetry());
+		assertFalse(budget.tryRetry());
+	}
+
+	private static CircuitBreaker openedBreaker(final String url) throws InterruptedException {
+		CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(1).openMillis(10L).build();
+		breaker.onFailure(url);
+		Thread.sleep(20L);
+		return breaker;
+	}
+}
@@ -0,0 +1,99 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.exceptions.HttpStatusException;
+import info.unterrainer.commons.restclient.jsons.MessageJson;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class CoalescingTests {
+
+	private static final int CALLERS = 5;
+
+	private MockWebServer server;
+	private RestClient client;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new MockWebServer();
+		server.start();
+		client = new RestClient(JsonMapper.create(), RestClientConfig.builder().coalesceRequests(true).build());
+	}
+
+	@AfterEach
+	public void shutdown() throws IOException {
+		server.shutdown();
+	}
+
+	private CompletableFuture<MessageJson> getAsync() {
+		return client.<MessageJson>get(MessageJson.class).addUrl(server.url("/message").toString()).executeAsync();
+	}
+
+	private List<CompletableFuture<MessageJson>> getConcurrently() {
+		List<CompletableFuture<MessageJson>> calls = new ArrayList<>();
+		for (int i = 0; i < CALLERS; i++)
+			calls.add(getAsync());
+		return calls;
+	}
+
+	@Test
+	public void concurrentIdenticalGetsMakeOneCall() {
+		server.enqueue(new MockResponse().setHeader("Content-Type", "application/json")
+				.setBody("{\"message\":\"hello\"}")
+				.setHeadersDelay(300L, TimeUnit.MILLISECONDS));
+
+		List<CompletableFuture<MessageJson>> calls = getConcurrently();
+		// A waiter that leaves doesn't take the call away from the others.
+		calls.remove(0).cancel(true);
+
+		for (CompletableFuture<MessageJson> call : calls)
+			assertEquals("hello", call.join().getMessage());
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	public void errorReachesEveryWaiter() {
+		server.enqueue(new MockResponse().setResponseCode(500).setHeadersDelay(300L, TimeUnit.MILLISECONDS));
+
+		for (CompletableFuture<MessageJson> call : getConcurrently()) {
+			CompletionException e = assertThrows(CompletionException.class, call::join);
+			assertTrue(RestClient.unwrap(e) instanceof HttpStatusException);
+		}
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	public void callIsCancelledWhenAllWaitersAreGone() throws InterruptedException {
+		server.enqueue(new MockResponse().setBody("late").setHeadersDelay(10L, TimeUnit.SECONDS));
+		server.enqueue(new MockResponse().setHeader("Content-Type", "application/json")
+				.setBody("{\"message\":\"again\"}"));
+
+		List<CompletableFuture<MessageJson>> calls = getConcurrently();
+		server.takeRequest();
+		for (CompletableFuture<MessageJson> call : calls)
+			call.cancel(true);
+
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (client.client.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10L);
+		assertEquals(0, client.client.dispatcher().runningCallsCount());
+		// The abandoned call isn't joined any more.
+		assertEquals("again", getAsync().join().getMessage());
+		assertEquals(2, server.getRequestCount());
+	}
+}
@@ -0,0 +1,69 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class GzipInterceptorTests {
+
+	private MockWebServer server;
+	private RestClient client;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new MockWebServer();
+		server.start();
+		client = new RestClient(JsonMapper.create());
+	}
+
+	@AfterEach
+	public void shutdown() throws IOException {
+		server.shutdown();
+	}
+
+	@Test
+	public void rangeRequestsAreNotNegotiated() throws InterruptedException {
+		server.enqueue(new MockResponse().setResponseCode(206)
+				.setHeader("Content-Range", "bytes 4-9/10")
+				.setBody("456789"));
+
+		String part = client.<String>get(String.class)
+				.addUrl(server.url("/file").toString())
+				.range(4L, -1L)
+				.execute();
+
+		assertEquals("456789", part);
+		RecordedRequest request = server.takeRequest();
+		assertEquals("bytes=4-", request.getHeader("Range"));
+		assertNull(request.getHeader("Accept-Encoding"));
+	}
+
+	@Test
+	public void responsesWithoutBodyAreNotDecoded() throws IOException {
+		OkHttpClient okHttp = new OkHttpClient.Builder().addInterceptor(new GzipInterceptor()).build();
+		server.enqueue(new MockResponse().setHeader("Content-Encoding", "gzip"));
+		server.enqueue(new MockResponse().setResponseCode(204).setHeader("Content-Encoding", "gzip"));
+		server.enqueue(new MockResponse().setResponseCode(304).setHeader("Content-Encoding", "gzip"));
+
+		Request head = new Request.Builder().url(server.url("/file")).head().build();
+		Request get = new Request.Builder().url(server.url("/file")).build();
+		for (Request request : new Request[] { head, get, get })
+			try (Response response = okHttp.newCall(request).execute()) {
+				assertEquals("", response.body().string());
+				assertEquals("gzip", response.header("Content-Encoding"));
+			}
+	}
+}
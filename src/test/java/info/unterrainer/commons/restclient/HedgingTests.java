@@ -0,0 +1,112 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class HedgingTests {
+
+	private MockWebServer server;
+	private RestClient client;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new MockWebServer();
+		server.start();
+		client = new RestClient(JsonMapper.create());
+	}
+
+	@AfterEach
+	public void shutdown() throws IOException {
+		server.shutdown();
+	}
+
+	private static MockResponse answer(final String body, final long delayMillis) {
+		return new MockResponse().setBody(body).setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+	}
+
+	private CompletableFuture<String> hedged(final long delayMillis) {
+		return client.<String>get(String.class)
+				.addUrl(server.url("/users").toString())
+				.hedge(delayMillis)
+				.executeAsync();
+	}
+
+	private void awaitNoRunningCalls() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (client.client.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10L);
+		assertEquals(0, client.client.dispatcher().runningCallsCount());
+	}
+
+	@Test
+	public void fastCallIsNotHedged() throws InterruptedException {
+		server.enqueue(answer("first", 50L));
+
+		assertEquals("first", hedged(1000L).join());
+		Thread.sleep(1100L);
+
+		assertEquals(1, server.getRequestCount());
+	}
+
+	@Test
+	public void slowCallIsHedgedAfterTheDelayAndLoses() throws InterruptedException {
+		server.enqueue(answer("slow", 10000L));
+		server.enqueue(answer("hedge", 0L));
+
+		long start = System.nanoTime();
+		assertEquals("hedge", hedged(200L).join());
+		long tookMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+		assertTrue(tookMillis >= 200L, "The hedge was sent after " + tookMillis + "ms.");
+		assertEquals(2, server.getRequestCount());
+		// The slow call was cancelled instead of waiting for its answer.
+		awaitNoRunningCalls();
+	}
+
+	@Test
+	public void budgetLimitsTheHedges() {
+		client.hedgingBudget(RetryBudget.builder().ratio(0.0D).minRetries(1).build());
+		server.enqueue(answer("slow", 500L));
+		server.enqueue(answer("hedge", 0L));
+		server.enqueue(answer("unhedged", 500L));
+
+		assertEquals("hedge", hedged(50L).join());
+		assertEquals("unhedged", hedged(50L).join());
+
+		assertEquals(3, server.getRequestCount());
+	}
+
+	@Test
+	public void cancelledHedgedCallFreesTheTrial() throws InterruptedException {
+		String url = server.url("/users").toString();
+		CircuitBreaker breaker = CircuitBreaker.builder().failureThreshold(1).openMillis(10L).build();
+		breaker.onFailure(url);
+		Thread.sleep(20L);
+		client.circuitBreaker(breaker);
+		server.enqueue(answer("late", 10000L));
+
+		// The call is the trial. Its hedge is rejected while the trial is in flight.
+		CompletableFuture<String> call = hedged(50L);
+		Thread.sleep(200L);
+		assertFalse(call.isDone());
+		assertFalse(breaker.allow(url));
+
+		call.cancel(true);
+		awaitNoRunningCalls();
+		assertTrue(breaker.allow(url));
+		assertEquals(1, server.getRequestCount());
+	}
+}
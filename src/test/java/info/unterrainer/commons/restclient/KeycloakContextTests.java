@@ -1,11 +1,31 @@
 package info.unterrainer.commons.restclient;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import info.unterrainer.commons.restclient.exceptions.UnauthorizedException;
 import info.unterrainer.commons.restclient.jsons.EliteUserJson;
 import info.unterrainer.commons.restclient.jsons.ListJson;
+import info.unterrainer.commons.restclient.jsons.TokenResponseJson;
 import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
 
 public class KeycloakContextTests {
 
@@ -31,4 +51,187 @@ public class KeycloakContextTests {
 
 		System.out.println(users);
 	}
+
+	/**
+	 * A local token-endpoint that hands out numbered tokens and counts the grants
+	 * it got.
+	 */
+	private static class TokenEndpoint extends Dispatcher {
+		private final AtomicInteger passwordGrants = new AtomicInteger();
+		private final AtomicInteger refreshGrants = new AtomicInteger();
+		private final AtomicInteger tokens = new AtomicInteger();
+		private final long expiresIn;
+		private final long refreshExpiresIn;
+		private final long delayMillis;
+
+		TokenEndpoint(final long expiresIn, final long refreshExpiresIn, final long delayMillis) {
+			this.expiresIn = expiresIn;
+			this.refreshExpiresIn = refreshExpiresIn;
+			this.delayMillis = delayMillis;
+		}
+
+		@Override
+		public MockResponse dispatch(final RecordedRequest request) {
+			String body = request.getBody().copy().readUtf8();
+			if (body.contains("grant_type=refresh_token"))
+				refreshGrants.incrementAndGet();
+			else
+				passwordGrants.incrementAndGet();
+			int n = tokens.incrementAndGet();
+			return new MockResponse().setHeader("Content-Type", "application/json")
+					.setBody(String.format(
+							"{\"access_token\":\"access-%d\",\"refresh_token\":\"refresh-%d\","
+									+ "\"expires_in\":%d,\"refresh_expires_in\":%d}",
+							n, n, expiresIn, refreshExpiresIn))
+					.setHeadersDelay(delayMillis, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	private static KeycloakContext localContext(final MockWebServer server) {
+		return KeycloakContext.password(server.url("/token").toString(), "user", "password", "client", null);
+	}
+
+	@Test
+	public void concurrentCallersShareOneTokenRequest() throws IOException, InterruptedException {
+		TokenEndpoint endpoint = new TokenEndpoint(300L, 1800L, 200L);
+		ExecutorService executor = Executors.newFixedThreadPool(16);
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(endpoint);
+			KeycloakContext context = localContext(server);
+			RestClient client = new RestClient(jsonMapper);
+			CountDownLatch start = new CountDownLatch(1);
+			List<CompletableFuture<String>> tokens = new ArrayList<>();
+			for (int i = 0; i < 16; i++)
+				tokens.add(CompletableFuture.supplyAsync(() -> {
+					try {
+						start.await();
+					} catch (InterruptedException e) {
+						Thread.currentThread().interrupt();
+					}
+					return context.accessToken(client);
+				}, executor));
+			start.countDown();
+
+			for (CompletableFuture<String> token : tokens)
+				assertEquals("access-1", token.join());
+			assertEquals(1, server.getRequestCount());
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	public void refreshGrantIsUsedUntilTheRefreshTokenExpires() throws IOException, InterruptedException {
+		// Access-tokens expire at once, refresh-tokens after a second.
+		TokenEndpoint endpoint = new TokenEndpoint(0L, 1L, 0L);
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(endpoint);
+			KeycloakContext context = localContext(server);
+			RestClient client = new RestClient(jsonMapper);
+
+			assertEquals("access-1", context.accessToken(client));
+			assertEquals(1, endpoint.passwordGrants.get());
+
+			Thread.sleep(10L);
+			assertEquals("access-2", context.accessToken(client));
+			assertEquals(1, endpoint.refreshGrants.get());
+			assertEquals(1, endpoint.passwordGrants.get());
+
+			Thread.sleep(1100L);
+			assertEquals("access-3", context.accessToken(client));
+			assertEquals(1, endpoint.refreshGrants.get());
+			assertEquals(2, endpoint.passwordGrants.get());
+		}
+	}
+
+	@Test
+	public void failedRefreshDoesNotBlockTheNextOne() {
+		AtomicInteger calls = new AtomicInteger();
+		KeycloakContext context = new KeycloakContext(c -> {
+			if (calls.incrementAndGet() == 1)
+				throw new UnauthorizedException("The token-endpoint is down.");
+			return TokenResponseJson.builder().accessToken("access").build();
+		});
+		RestClient client = new RestClient(jsonMapper);
+
+		assertThrows(UnauthorizedException.class, () -> context.accessToken(client));
+		assertEquals("access", CompletableFuture.supplyAsync(() -> context.accessToken(client))
+				.orTimeout(5L, TimeUnit.SECONDS)
+				.join());
+		assertEquals(2, calls.get());
+	}
+
+	@Test
+	public void clientCredentialsGrantIsPosted() throws IOException, InterruptedException {
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(new TokenEndpoint(300L, 0L, 0L));
+			KeycloakContext context = KeycloakContext.clientCredentials(server.url("/token").toString(), "service",
+					"secret");
+
+			assertEquals("access-1", context.accessToken(new RestClient(jsonMapper)));
+			String body = server.takeRequest().getBody().readUtf8();
+			assertTrue(body.contains("grant_type=client_credentials"));
+			assertTrue(body.contains("client_id=service"));
+			assertTrue(body.contains("client_secret=secret"));
+		}
+	}
+
+	@Test
+	public void staticTokenIsNeverFetchedAgain() {
+		KeycloakContext context = KeycloakContext.staticToken("api-key");
+		RestClient client = new RestClient(jsonMapper);
+
+		assertEquals("api-key", context.accessToken(client));
+		assertEquals("api-key", context.renew(client, "other-key"));
+		assertEquals(Long.MAX_VALUE, (long) context.getRefreshTimestamp());
+	}
+
+	@Test
+	public void tokenIsRenewedProactively() throws IOException, InterruptedException {
+		TokenEndpoint endpoint = new TokenEndpoint(1L, 1800L, 0L);
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(endpoint);
+			KeycloakContext context = localContext(server).renewProactively(0.5D);
+			RestClient client = new RestClient(jsonMapper);
+
+			assertEquals("access-1", context.accessToken(client));
+			Thread.sleep(800L);
+
+			assertEquals(1, endpoint.refreshGrants.get());
+			assertEquals("access-2", context.accessToken(client));
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void unusedTokenIsNotRenewedAgain() throws IOException, InterruptedException {
+		TokenEndpoint endpoint = new TokenEndpoint(1L, 1800L, 0L);
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(endpoint);
+			KeycloakContext context = localContext(server).renewProactively(0.5D);
+			RestClient client = new RestClient(jsonMapper);
+
+			assertEquals("access-1", context.accessToken(client));
+			Thread.sleep(2000L);
+
+			assertEquals(1, endpoint.refreshGrants.get());
+			assertEquals(2, server.getRequestCount());
+		}
+	}
+
+	@Test
+	public void stoppedRenewalDoesNotFetchTokens() throws IOException, InterruptedException {
+		TokenEndpoint endpoint = new TokenEndpoint(1L, 1800L, 0L);
+		try (MockWebServer server = new MockWebServer()) {
+			server.setDispatcher(endpoint);
+			KeycloakContext context = localContext(server).renewProactively(0.5D);
+			RestClient client = new RestClient(jsonMapper);
+
+			assertEquals("access-1", context.accessToken(client));
+			context.stopRenewal();
+			Thread.sleep(800L);
+
+			assertEquals(1, server.getRequestCount());
+		}
+	}
 }
@@ -0,0 +1,96 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.jsons.MessageJson;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class ObjectCacheTests {
+
+	private MockWebServer server;
+	private RestClient client;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new MockWebServer();
+		server.start();
+		client = new RestClient(JsonMapper.create(), RestClientConfig.builder().objectCacheSize(10).build());
+	}
+
+	@AfterEach
+	public void shutdown() throws IOException {
+		server.shutdown();
+	}
+
+	private static MockResponse json(final String message, final String eTag) {
+		return new MockResponse().setHeader("Content-Type", "application/json")
+				.setHeader("ETag", eTag)
+				.setBody("{\"message\":\"" + message + "\"}");
+	}
+
+	private MessageJson get(final KeycloakContext kcc) {
+		return kcc.<MessageJson>get(client, MessageJson.class).addUrl(server.url("/message").toString()).execute();
+	}
+
+	@Test
+	public void notModifiedReturnsTheCachedObject() throws InterruptedException {
+		KeycloakContext kcc = KeycloakContext.staticToken("alice");
+		server.enqueue(json("hello", "\"v1\""));
+		server.enqueue(new MockResponse().setResponseCode(304).setHeader("ETag", "\"v1\""));
+
+		MessageJson first = get(kcc);
+		MessageJson second = get(kcc);
+
+		assertSame(first, second);
+		assertNull(server.takeRequest().getHeader("If-None-Match"));
+		assertEquals("\"v1\"", server.takeRequest().getHeader("If-None-Match"));
+	}
+
+	@Test
+	public void otherPrincipalsDontShareTheCache() throws InterruptedException {
+		server.enqueue(json("for alice", "\"a\""));
+		server.enqueue(json("for bob", "\"b\""));
+
+		MessageJson alice = get(KeycloakContext.staticToken("alice"));
+		MessageJson bob = get(KeycloakContext.staticToken("bob"));
+
+		assertEquals("for alice", alice.getMessage());
+		assertEquals("for bob", bob.getMessage());
+		server.takeRequest();
+		RecordedRequest second = server.takeRequest();
+		assertEquals("Bearer bob", second.getHeader("Authorization"));
+		assertNull(second.getHeader("If-None-Match"));
+	}
+
+	@Test
+	public void otherCredentialHeadersDontShareTheCache() throws InterruptedException {
+		server.enqueue(json("for alice", "\"a\""));
+		server.enqueue(json("for bob", "\"b\""));
+		String url = server.url("/message").toString();
+
+		MessageJson alice = client.<MessageJson>get(MessageJson.class)
+				.addUrl(url)
+				.addHeader("Authorization", "Basic YWxpY2U6cHc=")
+				.execute();
+		MessageJson bob = client.<MessageJson>get(MessageJson.class)
+				.addUrl(url)
+				.addHeader("Authorization", "Basic Ym9iOnB3")
+				.execute();
+
+		assertEquals("for alice", alice.getMessage());
+		assertEquals("for bob", bob.getMessage());
+		server.takeRequest();
+		assertNull(server.takeRequest().getHeader("If-None-Match"));
+	}
+}
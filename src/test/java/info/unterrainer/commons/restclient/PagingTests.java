@@ -0,0 +1,133 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.exceptions.RestClientException;
+import info.unterrainer.commons.restclient.jsons.MessageJson;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+
+public class PagingTests {
+
+	private MockWebServer server;
+	private RestClient client;
+	private MockResponse secondPage;
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new MockWebServer();
+		secondPage = page("[{\"message\":\"c\"},{\"message\":\"d\"}]", "items?page=3");
+		server.setDispatcher(new Dispatcher() {
+			@Override
+			public MockResponse dispatch(final RecordedRequest request) {
+				switch (request.getRequestUrl().queryParameter("page")) {
+				case "1":
+					// An absolute link...
+					return page("[{\"message\":\"a\"},{\"message\":\"b\"}]", server.url("/items?page=2").toString());
+				case "2":
+					// ... and a relative one.
+					return secondPage;
+				default:
+					return page("[{\"message\":\"e\"}]", null);
+				}
+			}
+		});
+		server.start();
+		client = new RestClient(JsonMapper.create());
+	}
+
+	@AfterEach
+	public void shutdown() throws IOException {
+		server.shutdown();
+	}
+
+	private static MockResponse page(final String entries, final String next) {
+		return new MockResponse().setHeader("Content-Type", "application/json")
+				.setBody("{\"entries\":" + entries + (next == null ? "" : ",\"next\":\"" + next + "\"") + "}");
+	}
+
+	private BaseGetBuilder<MessageJson, GetBuilder<MessageJson>> builder() {
+		return client.<MessageJson>get(MessageJson.class)
+				.addUrl(server.url("/items").toString())
+				.addParam("page", "1");
+	}
+
+	private static List<String> messages(final Stream<MessageJson> entries) {
+		return entries.map(MessageJson::getMessage).collect(Collectors.toList());
+	}
+
+	@Test
+	public void nextLinksAreFollowed() throws InterruptedException {
+		try (Stream<MessageJson> entries = builder().executePaged()) {
+			assertEquals(List.of("a", "b", "c", "d", "e"), messages(entries));
+		}
+
+		assertEquals("/items?page=1", server.takeRequest().getPath());
+		assertEquals("/items?page=2", server.takeRequest().getPath());
+		assertEquals("/items?page=3", server.takeRequest().getPath());
+	}
+
+	@Test
+	public void nextPageIsPrefetched() throws InterruptedException {
+		Iterator<MessageJson> entries = builder().iteratePaged(true);
+		assertEquals("a", entries.next().getMessage());
+
+		assertEquals("/items?page=1", server.takeRequest().getPath());
+		// Requested while the first page is consumed.
+		RecordedRequest prefetch = server.takeRequest(5L, TimeUnit.SECONDS);
+		assertNotNull(prefetch);
+		assertEquals("/items?page=2", prefetch.getPath());
+	}
+
+	@Test
+	public void nextPageIsNotFetchedWithoutPrefetching() throws InterruptedException {
+		Iterator<MessageJson> entries = builder().iteratePaged(false);
+		assertEquals("a", entries.next().getMessage());
+
+		server.takeRequest();
+		assertNull(server.takeRequest(300L, TimeUnit.MILLISECONDS));
+	}
+
+	@Test
+	public void closingTheStreamCancelsThePrefetch() throws InterruptedException {
+		secondPage.setHeadersDelay(10L, TimeUnit.SECONDS);
+
+		try (Stream<MessageJson> entries = builder().executePaged(true)) {
+			assertEquals("a", entries.iterator().next().getMessage());
+			server.takeRequest();
+			server.takeRequest();
+		}
+
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (client.client.dispatcher().runningCallsCount() > 0 && System.currentTimeMillis() < deadline)
+			Thread.sleep(10L);
+		assertEquals(0, client.client.dispatcher().runningCallsCount());
+	}
+
+	@Test
+	public void failedPageIsReported() {
+		secondPage.setResponseCode(500);
+
+		for (boolean prefetch : new boolean[] { false, true })
+			try (Stream<MessageJson> entries = builder().executePaged(prefetch)) {
+				assertThrows(RestClientException.class, () -> messages(entries));
+			}
+	}
+}
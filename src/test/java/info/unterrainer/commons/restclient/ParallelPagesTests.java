@@ -0,0 +1,120 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.jsons.ListJson;
+import okhttp3.HttpUrl;
+
+public class ParallelPagesTests {
+
+	private static final long COUNT = 95L;
+
+	private final AtomicInteger inFlight = new AtomicInteger();
+	private final AtomicInteger maxInFlight = new AtomicInteger();
+	/**
+	 * The maximum size of a page the fake server returns.
+	 */
+	private long maxPageSize = Long.MAX_VALUE;
+
+	private CompletableFuture<ListJson<Long>> fetch(final HttpUrl url) {
+		long offset = Long.parseLong(url.queryParameter("offset"));
+		long size = Math.min(maxPageSize, Long.parseLong(url.queryParameter("size")));
+		maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+		return CompletableFuture.supplyAsync(() -> {
+			inFlight.decrementAndGet();
+			List<Long> entries = LongStream.range(offset, Math.min(COUNT, offset + size))
+					.boxed()
+					.collect(Collectors.toList());
+			return ListJson.<Long>builder().entries(entries).count(COUNT).build();
+		}, CompletableFuture.delayedExecutor(ThreadLocalRandom.current().nextInt(10), TimeUnit.MILLISECONDS));
+	}
+
+	private ParallelPages<Long> pages() {
+		return pages(10L);
+	}
+
+	private ParallelPages<Long> pages(final long pageSize) {
+		return new ParallelPages<>(HttpUrl.get("https://example.com/items"), "offset", "size", pageSize, 3,
+				this::fetch);
+	}
+
+	@Test
+	public void allPagesAreMergedInOrder() {
+		List<Long> all = pages().all().join();
+
+		assertEquals(LongStream.range(0L, COUNT).boxed().collect(Collectors.toList()), all);
+		assertTrue(maxInFlight.get() <= 3);
+	}
+
+	@Test
+	public void iteratorReturnsAllEntriesInOrder() {
+		List<Long> all = new ArrayList<>();
+		pages().iterator().forEachRemaining(all::add);
+
+		assertEquals(LongStream.range(0L, COUNT).boxed().collect(Collectors.toList()), all);
+		assertTrue(maxInFlight.get() <= 3);
+	}
+
+	@Test
+	public void pagesClampedByTheServerAreNotSkipped() {
+		maxPageSize = 7L;
+		List<Long> expected = LongStream.range(0L, COUNT).boxed().collect(Collectors.toList());
+
+		assertEquals(expected, pages().all().join());
+		List<Long> all = new ArrayList<>();
+		pages(100L).iterator().forEachRemaining(all::add);
+		assertEquals(expected, all);
+	}
+
+	@Test
+	public void failedPageCancelsTheOthers() throws InterruptedException {
+		List<CompletableFuture<ListJson<Long>>> hanging = new ArrayList<>();
+		ParallelPages<Long> pages = new ParallelPages<>(HttpUrl.get("https://example.com/items"), "offset", "size",
+				10L, 3, url -> {
+					switch (url.queryParameter("offset")) {
+					case "0":
+						return fetch(url);
+					case "10":
+						return CompletableFuture.supplyAsync(() -> {
+							throw new IllegalStateException("failed");
+						}, CompletableFuture.delayedExecutor(50L, TimeUnit.MILLISECONDS));
+					default:
+						CompletableFuture<ListJson<Long>> call = new CompletableFuture<>();
+						synchronized (hanging) {
+							hanging.add(call);
+						}
+						return call;
+					}
+				});
+
+		CompletableFuture<List<Long>> all = pages.all();
+
+		assertThrows(CompletionException.class, all::join);
+		// The calls are cancelled by the thread failing the result, maybe after
+		// this one woke up.
+		long deadline = System.currentTimeMillis() + 5000L;
+		while (!allCancelled(hanging) && System.currentTimeMillis() < deadline)
+			Thread.sleep(10L);
+		assertTrue(allCancelled(hanging));
+	}
+
+	private static boolean allCancelled(final List<CompletableFuture<ListJson<Long>>> calls) {
+		synchronized (calls) {
+			return !calls.isEmpty() && calls.stream().allMatch(CompletableFuture::isCancelled);
+		}
+	}
+}
@@ -0,0 +1,35 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+public class RequestTemplateTests {
+
+	@Test
+	public void variablesAreBoundAndEncoded() {
+		RequestTemplate template = RequestTemplate.of("https://example.com/api/users/{id}/items/{item}?x=1");
+
+		assertEquals(2, template.variableCount());
+		assertEquals("https://example.com/api/users/42/items/a%20b?x=1", template.bind(42, "a b").toString());
+	}
+
+	@Test
+	public void templateWithoutVariablesIsBoundOnce() {
+		RequestTemplate template = RequestTemplate.of("https://example.com/api/users")
+				.withHeader("Accept", "application/json");
+
+		assertSame(template.bind(), template.bind());
+		assertEquals("application/json", template.headers().get("Accept"));
+	}
+
+	@Test
+	public void wrongNumberOfValuesIsRejected() {
+		RequestTemplate template = RequestTemplate.of("https://example.com/api/users/{id}");
+
+		assertThrows(IllegalArgumentException.class, () -> template.bind());
+		assertThrows(IllegalArgumentException.class, () -> template.bind(1, 2));
+	}
+}
@@ -0,0 +1,34 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+
+public class RestClientConfigTests {
+
+	private final JsonMapper jsonMapper = JsonMapper.create();
+
+	@Test
+	public void clientsShareThePoolButNotTheLimits() {
+		RestClient a = new RestClient(jsonMapper);
+		RestClient b = new RestClient(jsonMapper);
+
+		assertSame(a.client.connectionPool(), b.client.connectionPool());
+		assertNotSame(a.client.dispatcher(), b.client.dispatcher());
+	}
+
+	@Test
+	public void sharedDispatcherIsOptIn() {
+		RestClientConfig config = RestClientConfig.builder().sharedDispatcher(true).build();
+		RestClient a = new RestClient(jsonMapper, config);
+		RestClient b = new RestClient(jsonMapper, config);
+		RestClient isolated = new RestClient(jsonMapper, config.toBuilder().isolated(true).build());
+
+		assertSame(a.client.dispatcher(), b.client.dispatcher());
+		assertNotSame(a.client.dispatcher(), isolated.client.dispatcher());
+		assertNotSame(a.client.connectionPool(), isolated.client.connectionPool());
+	}
+}
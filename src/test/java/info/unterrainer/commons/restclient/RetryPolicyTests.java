@@ -0,0 +1,61 @@
+package info.unterrainer.commons.restclient;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.concurrent.TimeoutException;
+
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.RetryPolicy.Jitter;
+import info.unterrainer.commons.restclient.exceptions.HttpStatusException;
+
+public class RetryPolicyTests {
+
+	@Test
+	public void exponentialDelayIsCapped() {
+		RetryPolicy policy = RetryPolicy.builder()
+				.baseDelayMillis(100L)
+				.multiplier(2D)
+				.capMillis(500L)
+				.jitter(Jitter.NONE)
+				.build();
+
+		assertEquals(100L, policy.delayMillis(1, 0L));
+		assertEquals(200L, policy.delayMillis(2, 100L));
+		assertEquals(400L, policy.delayMillis(3, 200L));
+		assertEquals(500L, policy.delayMillis(4, 400L));
+	}
+
+	@Test
+	public void jitteredDelaysStayWithinBounds() {
+		RetryPolicy full = RetryPolicy.builder().baseDelayMillis(100L).capMillis(1000L).jitter(Jitter.FULL).build();
+		RetryPolicy decorrelated = full.toBuilder().jitter(Jitter.DECORRELATED).build();
+
+		long previous = 0L;
+		for (int attempt = 1; attempt < 100; attempt++) {
+			long f = full.delayMillis(attempt, 0L);
+			assertTrue(f >= 0L && f <= 1000L);
+
+			previous = decorrelated.delayMillis(attempt, previous);
+			assertTrue(previous >= 100L && previous <= 1000L);
+		}
+	}
+
+	@Test
+	public void onlyConfiguredFailuresAreRetriable() {
+		RetryPolicy policy = RetryPolicy.builder().retryOnStatus(503).build();
+
+		assertTrue(policy.isRetriable(null));
+		assertTrue(policy.isRetriable(new IOException()));
+		assertTrue(policy.isRetriable(new HttpStatusException("unavailable", 503)));
+		assertFalse(policy.isRetriable(new HttpStatusException("not found", 404)));
+		assertFalse(policy.isRetriable(new IllegalStateException()));
+
+		RetryPolicy timeouts = RetryPolicy.builder().retryOn(TimeoutException.class).build();
+		assertTrue(timeouts.isRetriable(new TimeoutException()));
+		assertFalse(timeouts.isRetriable(new IOException()));
+	}
+}
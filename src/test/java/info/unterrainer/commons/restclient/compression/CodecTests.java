@@ -0,0 +1,57 @@
+package info.unterrainer.commons.restclient.compression;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.zip.Deflater;
+
+import org.junit.jupiter.api.Test;
+
+import okio.Buffer;
+import okio.BufferedSink;
+import okio.DeflaterSink;
+import okio.Okio;
+
+public class CodecTests {
+
+	private static final String TEXT = "{\"name\":\"value\"}".repeat(100);
+
+	@Test
+	public void gzipRoundTrip() throws IOException {
+		assertEquals(TEXT, roundTrip(new GzipCodec(9)));
+	}
+
+	@Test
+	public void deflateRoundTrip() throws IOException {
+		assertEquals(TEXT, roundTrip(new DeflateCodec(1)));
+	}
+
+	@Test
+	public void deflateDecodesRawDeflate() throws IOException {
+		Buffer compressed = new Buffer();
+		BufferedSink sink = Okio.buffer(new DeflaterSink(compressed, new Deflater(1, true)));
+		sink.writeUtf8(TEXT);
+		sink.close();
+		assertEquals(TEXT, Okio.buffer(new DeflateCodec().decode(compressed)).readUtf8());
+	}
+
+	@Test
+	public void onlyEncodingCodecsCompressRequests() {
+		List<ContentCodec> codecs = List.of(new GzipCodec(1), new DeflateCodec(1), new BrotliCodec());
+
+		assertEquals("gzip", Codecs.encoderFor(codecs, "GZIP").encoding());
+		assertThrows(IllegalArgumentException.class, () -> Codecs.encoderFor(codecs, "br"));
+		assertThrows(IllegalArgumentException.class, () -> Codecs.encoderFor(codecs, "zstd"));
+		assertThrows(IllegalArgumentException.class, () -> Codecs.encoderFor(codecs, "gzp"));
+	}
+
+	private String roundTrip(final ContentCodec codec) throws IOException {
+		Buffer compressed = new Buffer();
+		BufferedSink sink = Okio.buffer(codec.encode(compressed));
+		sink.writeUtf8(TEXT);
+		sink.close();
+		return Okio.buffer(codec.decode(compressed)).readUtf8();
+	}
+}
@@ -0,0 +1,178 @@
+package info.unterrainer.commons.restclient.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationTargetException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import info.unterrainer.commons.restclient.RestClient;
+import info.unterrainer.commons.restclient.RestClientConfig;
+import info.unterrainer.commons.restclient.jsons.MessageJson;
+import info.unterrainer.commons.serialization.jsonmapper.JsonMapper;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+
+public class MetricsTests {
+
+	private MockWebServer server;
+	private RecordingRecorder recorder;
+	private RestClient client;
+
+	/**
+	 * Records the phases in the order they are reported.
+	 */
+	private static class RecordingRecorder implements MetricsRecorder {
+		private final List<Phase> phases = new ArrayList<>();
+		private final List<String> routes = new ArrayList<>();
+		private final List<Boolean> attempts = new ArrayList<>();
+		private int pools;
+
+		@Override
+		public synchronized void recordPhase(final String route, final Phase phase, final long nanos) {
+			assertTrue(nanos >= 0L, phase + " took " + nanos + "ns.");
+			phases.add(phase);
+			routes.add(route);
+		}
+
+		@Override
+		public synchronized void recordAttempts(final int attempts, final boolean success) {
+			assertEquals(1, attempts);
+			this.attempts.add(success);
+		}
+
+		@Override
+		public synchronized void recordPool(final int connections, final int idleConnections) {
+			pools++;
+		}
+
+		synchronized List<Phase> phases() {
+			return new ArrayList<>(phases);
+		}
+	}
+
+	@BeforeEach
+	public void setup() throws IOException {
+		server = new MockWebServer();
+		server.start();
+		recorder = new RecordingRecorder();
+		client = new RestClient(JsonMapper.create(), RestClientConfig.builder().metrics(recorder).build());
+	}
+
+	@AfterEach
+	public void shutdown() throws IOException {
+		server.shutdown();
+	}
+
+	private MessageJson get() {
+		server.enqueue(new MockResponse().setHeader("Content-Type", "application/json")
+				.setBody("{\"message\":\"hello\"}"));
+		return client.<MessageJson>get(MessageJson.class).addUrl(server.url("/message").toString()).execute();
+	}
+
+	/**
+	 * Returns the phases that were reported, without the ones that are optional
+	 * or not ordered relative to the network.
+	 */
+	private List<Phase> networkPhases() {
+		return recorder.phases()
+				.stream()
+				.filter(p -> p != Phase.DNS && p != Phase.DESERIALIZATION)
+				.collect(Collectors.toList());
+	}
+
+	@Test
+	public void phasesAreReportedInOrder() {
+		assertEquals("hello", get().getMessage());
+
+		assertEquals(List.of(Phase.CONNECT, Phase.REQUEST_WRITE, Phase.TIME_TO_FIRST_BYTE, Phase.BODY_READ,
+				Phase.CALL), networkPhases());
+		List<Phase> phases = recorder.phases();
+		assertTrue(phases.indexOf(Phase.DESERIALIZATION) > phases.indexOf(Phase.BODY_READ));
+		assertFalse(phases.contains(Phase.TLS));
+		String route = server.getHostName() + ":" + server.getPort();
+		assertTrue(recorder.routes.stream().allMatch(route::equals), recorder.routes.toString());
+		assertEquals(List.of(true), recorder.attempts);
+		assertEquals(1, recorder.pools);
+	}
+
+	@Test
+	public void reusedConnectionIsNotTimedAgain() {
+		get();
+		recorder.phases.clear();
+
+		get();
+
+		assertEquals(List.of(Phase.REQUEST_WRITE, Phase.TIME_TO_FIRST_BYTE, Phase.BODY_READ, Phase.CALL),
+				networkPhases());
+	}
+
+	@Test
+	public void hdrRecorderKeepsIntervals() {
+		HdrMetricsRecorder hdr = new HdrMetricsRecorder();
+		hdr.recordPhase("example.com:443", Phase.CALL, 1000L);
+		hdr.recordPhase("example.com:443", Phase.CALL, 3000L);
+		hdr.recordPhase("example.com:443", Phase.CALL, -1L);
+		hdr.recordAttempts(2, false);
+
+		assertEquals(2L, hdr.snapshot("example.com:443", Phase.CALL).getTotalCount());
+		assertEquals(0L, hdr.snapshot("example.com:443", Phase.CALL).getTotalCount());
+		assertEquals(2L, hdr.attemptsSnapshot().getMaxValue());
+		assertEquals(1L, hdr.failedCalls());
+	}
+
+	/**
+	 * Loads the metrics-classes again in a class-loader that doesn't see
+	 * HdrHistogram.
+	 */
+	private static class WithoutHdrHistogram extends ClassLoader {
+
+		WithoutHdrHistogram() {
+			super(MetricsTests.class.getClassLoader());
+		}
+
+		@Override
+		protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+			if (name.startsWith("org.HdrHistogram."))
+				throw new ClassNotFoundException(name);
+			if (!name.startsWith(MetricsRecorder.class.getPackageName() + "."))
+				return super.loadClass(name, resolve);
+			synchronized (getClassLoadingLock(name)) {
+				Class<?> c = findLoadedClass(name);
+				if (c != null)
+					return c;
+				try (InputStream in = getParent().getResourceAsStream(name.replace('.', '/') + ".class")) {
+					if (in == null)
+						throw new ClassNotFoundException(name);
+					byte[] bytes = in.readAllBytes();
+					return defineClass(name, bytes, 0, bytes.length);
+				} catch (IOException e) {
+					throw new ClassNotFoundException(name, e);
+				}
+			}
+		}
+	}
+
+	@Test
+	public void missingHdrHistogramIsReported() throws ReflectiveOperationException {
+		ClassLoader loader = new WithoutHdrHistogram();
+		Class.forName(MetricsEventListener.class.getName(), true, loader);
+		Class<?> hdr = Class.forName(HdrMetricsRecorder.class.getName(), true, loader);
+
+		assertFalse((Boolean) hdr.getMethod("isAvailable").invoke(null));
+		InvocationTargetException e = assertThrows(InvocationTargetException.class,
+				() -> hdr.getConstructor().newInstance());
+		assertTrue(e.getCause() instanceof IllegalStateException, e.getCause().toString());
+		assertTrue(HdrMetricsRecorder.isAvailable());
+	}
+}